@@ -0,0 +1,151 @@
+package com.example.demo;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * Checks every {@code .ru} file under a directory. Each file is read, lexed, checked and resolved
+ * by its own task: a virtual thread where the JVM has them (21+), otherwise a pool sized for
+ * blocking reads. A semaphore over bytes bounds how much source is in memory at once, and results
+ * are printed in path order as soon as every earlier file is done.
+ */
+public class BatchDriver {
+    static final String EXT = ".ru";
+
+    private final Semaphore budget;
+    private final int budgetBytes;
+
+    public BatchDriver(int budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        this.budget = new Semaphore(budgetBytes);
+    }
+
+    /** Diagnostics of one file, already formatted so its source can be dropped. */
+    static final class FileResult {
+        final int tokens;
+        final int errors;
+        final String report;
+
+        FileResult(int tokens, int errors, String report) {
+            this.tokens = tokens;
+            this.errors = errors;
+            this.report = report;
+        }
+    }
+
+    /** Virtual threads through reflection, so this still compiles and runs on 17. */
+    static ExecutorService executor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // reads block, so keep more threads than cores to overlap them with lexing
+            return Executors.newFixedThreadPool(2 * Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    static List<Path> sources(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(EXT) && Files.isRegularFile(p)).sorted().toList();
+        }
+    }
+
+    /** Checks every source under {@code root}, writing the merged report to {@code out}; returns the error count. */
+    public int run(Path root, PrintStream out) throws IOException, InterruptedException {
+        List<Path> files = sources(root);
+        long t0 = System.nanoTime();
+        List<Future<FileResult>> results = new ArrayList<>(files.size());
+        List<String> names = new ArrayList<>(files.size());
+        int tokens = 0, errors = 0;
+        ExecutorService pool = executor();
+        try {
+            for (Path f : files) {
+                String name = (f.equals(root) ? f.getFileName() : root.relativize(f)).toString();
+                names.add(name);
+                results.add(pool.submit(() -> check(f, name)));
+            }
+            for (int i = 0; i < files.size(); i++) {
+                FileResult r;
+                try {
+                    r = results.get(i).get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    r = new FileResult(0, 1, names.get(i) + ": " + cause + "\n");
+                }
+                out.print(r.report);
+                tokens += r.tokens;
+                errors += r.errors;
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        out.println(files.size() + " files, " + tokens + " tokens, " + errors + " errors in "
+                + (System.nanoTime() - t0) / 1_000_000 + " ms");
+        out.flush();
+        return errors;
+    }
+
+    FileResult check(Path file, String name) throws IOException, InterruptedException {
+        long size = Files.size(file);
+        if (size > Integer.MAX_VALUE) throw new IOException("File too large: " + size + " bytes");
+        // a file bigger than the whole budget runs once it has the budget to itself
+        int permits = (int) Math.min(size, budgetBytes);
+        budget.acquire(permits);
+        try {
+            return result(Files.readAllBytes(file), name);
+        } finally {
+            budget.release(permits);
+        }
+    }
+
+    FileResult result(byte[] src, String name) {
+        ErrorHandler errs = new ErrorHandler();
+        TokenBuffer toks = analyze(ByteBuffer.wrap(src), errs);
+        return new FileResult(toks.size(), errs.size(), report(name, errs));
+    }
+
+    /** Lexes and checks {@code src} and resolves its symbols, all diagnostics going to {@code errs}. */
+    static TokenBuffer analyze(ByteBuffer src, ErrorHandler errs) {
+        TokenBuffer toks = errs.analyze(src);
+        Scopes scopes = SymbolTable.symbols(toks, new NameTable(), errs);
+        NameTable names = scopes.names();
+        for (int i = 0; i < scopes.missCount(); i++) {
+            errs.logError(scopes.missLine(i), "Undeclared identifier: " + names.name(scopes.missName(i)));
+        }
+        return toks;
+    }
+
+    /** One {@code name:line:column: message} line per diagnostic, by line; without the name when it is null. */
+    static String report(String name, ErrorHandler errs) {
+        // token checks come first and symbol checks after, so order by line once all are in
+        long[] order = new long[errs.size()];
+        for (int i = 0; i < order.length; i++) order[i] = (long) errs.line(i) << 32 | i;
+        Arrays.sort(order);
+        StringBuilder sb = new StringBuilder();
+        for (long o : order) {
+            int i = (int) o, col = errs.column(i);
+            if (name != null) sb.append(name).append(':');
+            sb.append(errs.line(i));
+            if (col > 0) sb.append(':').append(col);
+            sb.append(": ").append(errs.message(i)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path root = Paths.get(args.length > 0 ? args[0] : ".");
+        int budgetMb = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16),
+                false, StandardCharsets.UTF_8);
+        int errors = new BatchDriver(budgetMb << 20).run(root, out);
+        System.exit(errors > 0 ? 1 : 0);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * Thin client for {@link CompileDaemon}: sends one request and copies the answer to standard
+ * output, exiting with the daemon's status. Paths are made absolute here, since the daemon does
+ * not share our working directory.
+ * <pre>
+ *   java CompileClient check src/     java CompileClient tokens main.ru     java CompileClient stats
+ * </pre>
+ */
+public final class CompileClient {
+    private CompileClient() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: CompileClient check <path> | tokens <file> | stats | stop");
+            System.exit(2);
+        }
+        String req = args.length > 1 ? args[0] + " " + Paths.get(args[1]).toAbsolutePath() : args[0];
+        String given = System.getProperty("roman.socket");
+        Path socket = given != null ? Paths.get(given) : CompileDaemon.defaultSocket();
+        // another user could have made the shared default directory and be listening there
+        if (given == null) CompileDaemon.checkPrivate(socket.getParent());
+
+        try (SocketChannel ch = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            byte[] body = req.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer out = ByteBuffer.allocate(4 + body.length).putInt(body.length).put(body).flip();
+            while (out.hasRemaining()) ch.write(out);
+
+            ByteBuffer head = CompileDaemon.readFully(ch, ByteBuffer.allocate(8)).flip();
+            int status = head.getInt();
+            ByteBuffer answer = CompileDaemon.readFully(ch, ByteBuffer.allocate(head.getInt()));
+            System.out.write(answer.array(), 0, answer.capacity());
+            System.out.flush();
+            System.exit(status);
+        }
+    }
+}
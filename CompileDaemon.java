@@ -0,0 +1,336 @@
+package com.example.demo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-lived checker behind a Unix domain socket, so repeated checks skip JVM start-up and JIT
+ * warm-up. Token streams and diagnostics are cached by the SHA-256 of the file content in an LRU
+ * bounded by bytes, so an unchanged file is answered without lexing it again, whatever its path.
+ * <p>
+ * Requests and responses are frames of a 4-byte big-endian length and UTF-8 text; a response is
+ * preceded by a 4-byte status, 1 when errors were found. Requests:
+ * {@code check <path>}, {@code tokens <file>}, {@code stats} and {@code stop}.
+ * <p>
+ * Any client that can connect reads files as the daemon's user and can stop it, so the socket is
+ * bound in a fresh owner-only directory, made owner-only there and only then moved to its path.
+ * The default one sits in a per-user directory that must be owned by the user with mode
+ * {@code rwx------}; one that is not is refused, by the daemon and by {@link CompileClient}.
+ */
+public class CompileDaemon extends BatchDriver {
+    static final int MAX_REQUEST = 8192; // a command and one path
+    static final long IO_TIMEOUT_MS = 10_000; // for reading a request and for writing its answer
+    private final Map<ByteBuffer, Entry> cache;
+    private final long limit;
+    private long used;
+    private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong();
+    private volatile boolean running = true;
+    private ScheduledExecutorService timer;
+    private Path socket;
+
+    /** One file content, checked; diagnostics carry no file name so any path with the same content can share them. */
+    static final class Entry {
+        final TokenBuffer toks;
+        final int errors;
+        final String diags;
+        final long weight;
+
+        Entry(byte[] src) {
+            ErrorHandler errs = new ErrorHandler();
+            toks = analyze(ByteBuffer.wrap(src), errs);
+            errors = errs.size();
+            diags = report(null, errs);
+            // source, token arrays, report chars
+            weight = src.length + 13L * toks.size() + 2L * diags.length();
+        }
+    }
+
+    public CompileDaemon(long cacheBytes, int budgetBytes) {
+        super(budgetBytes);
+        this.limit = cacheBytes;
+        this.cache = new LinkedHashMap<>(256, 0.75f, true);
+    }
+
+    public static Path defaultSocket() {
+        return Paths.get(System.getProperty("java.io.tmpdir"), "roman-urdu-" + System.getProperty("user.name"), "daemon.sock");
+    }
+
+    static ByteBuffer hash(byte[] src) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(src));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JVM must provide SHA-256
+        }
+    }
+
+    Entry entry(byte[] src) {
+        ByteBuffer key = hash(src);
+        synchronized (cache) {
+            Entry e = cache.get(key);
+            if (e != null) {
+                hits.incrementAndGet();
+                return e;
+            }
+        }
+        misses.incrementAndGet();
+        Entry e = new Entry(src);
+        synchronized (cache) {
+            Entry old = cache.put(key, e);
+            if (old != null) used -= old.weight;
+            used += e.weight;
+            for (Iterator<Entry> it = cache.values().iterator(); used > limit && it.hasNext(); ) {
+                Entry eldest = it.next();
+                if (eldest == e) continue;
+                used -= eldest.weight;
+                it.remove();
+            }
+        }
+        return e;
+    }
+
+    @Override
+    FileResult result(byte[] src, String name) {
+        Entry e = entry(src);
+        StringBuilder sb = new StringBuilder(e.diags.length() + 16);
+        for (int from = 0, nl; from < e.diags.length(); from = nl + 1) {
+            nl = e.diags.indexOf('\n', from);
+            sb.append(name).append(':').append(e.diags, from, nl + 1);
+        }
+        return new FileResult(e.toks.size(), e.errors, sb.toString());
+    }
+
+    public void serve(Path socket) throws IOException {
+        this.socket = socket;
+        Path dir = socket.toAbsolutePath().getParent();
+        if (dir.equals(defaultSocket().toAbsolutePath().getParent())) privateDir(dir);
+        removeStale(socket);
+        warmUp();
+        ExecutorService pool = executor();
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "roman-urdu-timeouts");
+            t.setDaemon(true);
+            return t;
+        });
+        Object bound = null;
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            bindPrivate(server, socket);
+            bound = attributes(socket).fileKey();
+            System.out.println("Listening on " + socket);
+            while (running) {
+                SocketChannel ch = server.accept();
+                // from accept, not from when a worker gets to it, so stalled clients queued behind
+                // busy workers are cut off too
+                ScheduledFuture<?> cut = deadline(ch);
+                pool.submit(() -> {
+                    try (ch) {
+                        handle(ch, cut);
+                    } catch (IOException e) {
+                        // the client went away; nothing to answer
+                    }
+                    return null;
+                });
+            }
+        } finally {
+            pool.shutdown();
+            timer.shutdownNow();
+            // only the socket this daemon bound, not whatever has replaced it since
+            BasicFileAttributes a = bound == null ? null : attributes(socket);
+            if (a != null && a.isOther() && bound.equals(a.fileKey())) Files.delete(socket);
+        }
+    }
+
+    /** Removes a socket left behind by a daemon that is gone; refuses to touch anything else at the path. */
+    static void removeStale(Path socket) throws IOException {
+        BasicFileAttributes a = attributes(socket);
+        if (a == null) return;
+        if (!a.isOther()) throw new IOException(socket + " exists and is not a socket; pick another path");
+        SocketChannel ch;
+        try {
+            ch = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+        } catch (ConnectException e) {
+            Files.delete(socket); // refused: nobody is listening any more
+            return;
+        }
+        ch.close();
+        throw new IOException("A daemon is already listening on " + socket);
+    }
+
+    // bound at its own path the socket would be reachable with the umask's permissions until restricted
+    private static void bindPrivate(ServerSocketChannel server, Path socket) throws IOException {
+        Path tmp = Files.createTempDirectory(socket.toAbsolutePath().getParent(), ".roman-urdu-"); // owner-only on POSIX
+        Path staged = tmp.resolve("s");
+        try {
+            server.bind(UnixDomainSocketAddress.of(staged));
+            restrict(staged, "rw-------");
+            Files.move(staged, socket); // a rename, so clients reach the bound socket; fails if the path was taken
+        } finally {
+            Files.deleteIfExists(staged);
+            Files.delete(tmp);
+        }
+    }
+
+    /** Creates {@code dir} owner-only if it is missing, then checks it is private as {@link #checkPrivate} does. */
+    static void privateDir(Path dir) throws IOException {
+        if (Files.notExists(dir, LinkOption.NOFOLLOW_LINKS)) {
+            try {
+                Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            } catch (UnsupportedOperationException e) {
+                Files.createDirectories(dir); // not POSIX; the platform's defaults apply
+            }
+        }
+        checkPrivate(dir);
+    }
+
+    /** Refuses a directory someone else could have made, or could change: it must be ours, with mode rwx------. */
+    static void checkPrivate(Path dir) throws IOException {
+        try {
+            UserPrincipal me = dir.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName(System.getProperty("user.name"));
+            if (!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS) || !Files.getOwner(dir, LinkOption.NOFOLLOW_LINKS).equals(me)
+                    || !Files.getPosixFilePermissions(dir, LinkOption.NOFOLLOW_LINKS).equals(PosixFilePermissions.fromString("rwx------"))) {
+                throw new IOException(dir + " is not a directory owned by " + me.getName() + " with mode rwx------; remove it or pass a socket path");
+            }
+        } catch (UnsupportedOperationException e) {
+            // not POSIX; owners and modes cannot be checked
+        }
+    }
+
+    private static void restrict(Path p, String perms) throws IOException {
+        try {
+            Files.setPosixFilePermissions(p, PosixFilePermissions.fromString(perms));
+        } catch (UnsupportedOperationException e) {
+            // not POSIX; the platform's defaults apply
+        }
+    }
+
+    private static BasicFileAttributes attributes(Path p) throws IOException {
+        try {
+            return Files.readAttributes(p, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    // compile the lexer and checker paths before the first real request needs them
+    private void warmUp() {
+        byte[] code = "adad x = 5;\nagar (x > 3) {\n    likho(\"Bara hai!\");\n}\n~~ note\n".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < 20_000; i++) analyze(ByteBuffer.wrap(code), new ErrorHandler());
+    }
+
+    private void handle(SocketChannel ch, ScheduledFuture<?> cut) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        int status = 0;
+        try {
+            byte[] raw = read(ch);
+            cut.cancel(false);
+            String req = new String(raw, StandardCharsets.UTF_8).trim();
+            int sp = req.indexOf(' ');
+            String cmd = sp < 0 ? req : req.substring(0, sp), arg = sp < 0 ? "" : req.substring(sp + 1);
+            switch (cmd) {
+                case "check" -> {
+                    PrintStream out = new PrintStream(buf, false, StandardCharsets.UTF_8);
+                    status = run(Paths.get(arg), out) > 0 ? 1 : 0;
+                }
+                case "tokens" -> {
+                    Entry e = entry(Files.readAllBytes(Paths.get(arg)));
+                    TokenWriter w = TokenWriter.text(Channels.newChannel(buf));
+                    TokenBuffer t = e.toks;
+                    for (int i = 0; i < t.size(); i++) w.token(t.kind(i), t.source(), t.start(i), t.length(i), t.start(i), t.line(i));
+                    w.end();
+                }
+                case "stats" -> {
+                    int entries;
+                    long bytes;
+                    synchronized (cache) {
+                        entries = cache.size();
+                        bytes = used;
+                    }
+                    buf.writeBytes((entries + " entries, " + bytes + " of " + limit + " bytes, " + hits.get() + " hits, "
+                            + misses.get() + " misses\n").getBytes(StandardCharsets.UTF_8));
+                }
+                case "stop" -> {
+                    running = false;
+                    buf.writeBytes("stopping\n".getBytes(StandardCharsets.UTF_8));
+                }
+                default -> {
+                    status = 2;
+                    buf.writeBytes(("unknown request: " + req + "\n").getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            status = 2;
+            buf.writeBytes((e + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        ByteBuffer head = ByteBuffer.allocate(8).putInt(status).putInt(buf.size()).flip();
+        ByteBuffer body = ByteBuffer.wrap(buf.toByteArray());
+        cut.cancel(false);
+        ScheduledFuture<?> slow = deadline(ch);
+        try {
+            while (head.hasRemaining() || body.hasRemaining()) ch.write(new ByteBuffer[]{head, body});
+        } finally {
+            slow.cancel(false);
+        }
+        if (!running) wake();
+    }
+
+    // channel reads and writes have no timeout, and a client that stalls would hold a pool thread for good,
+    // so close its channel once the deadline passes; the blocked call then fails with an IOException
+    private ScheduledFuture<?> deadline(SocketChannel ch) {
+        return timer.schedule(() -> {
+            try {
+                ch.close();
+            } catch (IOException e) {
+                // closed either way
+            }
+        }, IO_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // accept() only returns for a connection, so connect once to let the loop see running == false
+    private void wake() {
+        try (SocketChannel ch = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            ch.shutdownOutput();
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+
+    static byte[] read(SocketChannel ch) throws IOException {
+        int len = readFully(ch, ByteBuffer.allocate(4)).flip().getInt();
+        if (len < 0 || len > MAX_REQUEST) throw new IOException("Bad request length: " + len);
+        return readFully(ch, ByteBuffer.allocate(len)).array();
+    }
+
+    static ByteBuffer readFully(SocketChannel ch, ByteBuffer b) throws IOException {
+        while (b.hasRemaining()) {
+            if (ch.read(b) < 0) throw new IOException("Connection closed after " + b.position() + " of " + b.capacity() + " bytes");
+        }
+        return b;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path socket = args.length > 0 ? Paths.get(args[0]) : defaultSocket();
+        long cacheMb = args.length > 1 ? Long.parseLong(args[1]) : 512;
+        new CompileDaemon(cacheMb << 20, 256 << 20).serve(socket);
+    }
+}
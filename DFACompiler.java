@@ -0,0 +1,367 @@
+package com.example.demo;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.IntBuffer;
+import java.util.*;
+
+/**
+ * Compiles a DFA table into a hidden class whose code is the automaton: every state is a block of
+ * straight-line bytecode that reads one char and dispatches, through a binary tree of range
+ * compares or a {@code tableswitch} when that is smaller, directly to the next state's block. The
+ * JIT then sees plain branches instead of table loads.
+ * <p>
+ * The class file is written by hand at version 49, which predates stack map frames, so no frame
+ * computation is needed. HotSpot will not compile a method over 8000 bytecode bytes, so larger
+ * automata are rejected with an {@link IllegalArgumentException} and the caller keeps the table.
+ */
+public final class DFACompiler {
+    /** A compiled automaton. Implementations are stateless and thread-safe. */
+    public interface Compiled {
+        /**
+         * Runs from {@code from} and returns {@code tag << 32 | end} for the longest accepted
+         * prefix, where {@code tag} is the accepting state's label, or -1 if no prefix is accepted.
+         */
+        long longest(CharSequence s, int from);
+    }
+
+    private static final String NAME = "com/example/demo/DFACompiler$Automaton";
+    private static final int MAX_CODE = 8000; // HotSpot does not JIT methods above this many bytes
+
+    // locals of longest(): 0 this, 1 s, 2 from, 3 i, 4 len, 5 c, 6-7 last
+    private static final int I = 3, LEN = 4, C = 5, LAST = 6;
+
+    private DFACompiler() {
+    }
+
+    public static Compiled compile(RegexToNFA.DFA dfa) {
+        return compile(RegexToNFA.minimize(dfa));
+    }
+
+    public static Compiled compile(RegexToNFA.Table t) {
+        return compile(t.states, t.classes, t.start, IntBuffer.wrap(t.next), IntBuffer.wrap(t.label), t.chars);
+    }
+
+    public static Compiled compile(LexerGenerator.Scanner sc) {
+        return compile(sc.states, sc.classes, sc.start, sc.next, sc.label, sc.chars);
+    }
+
+    static Compiled compile(int states, int k, int start, IntBuffer next, IntBuffer label, RegexToNFA.CharClasses chars) {
+        byte[] bytes = classFile(states, k, start, next, label, chars);
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return (Compiled) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot define compiled DFA", e);
+        }
+    }
+
+    static byte[] classFile(int states, int k, int start, IntBuffer next, IntBuffer label, RegexToNFA.CharClasses chars) {
+        Pool cp = new Pool();
+        int thisClass = cp.cls(NAME);
+        int object = cp.cls("java/lang/Object");
+        int iface = cp.cls("com/example/demo/DFACompiler$Compiled");
+        int init = cp.ref(10, object, "<init>", "()V");
+        int length = cp.ref(11, cp.cls("java/lang/CharSequence"), "length", "()I");
+        int charAt = cp.ref(11, cp.cls("java/lang/CharSequence"), "charAt", "(I)C");
+        int code = cp.utf8("Code");
+
+        Code m = new Code(states + 1);
+        int done = states;
+        m.op(0x2b).op(0xb9).u2(length).op(1).op(0);  // len = s.length()
+        m.op(0x36).op(LEN);
+        m.op(0x1c).op(0x36).op(I);                   // i = from
+        m.op(0x14).u2(cp.lng(-1L)).op(0x37).op(LAST); // last = -1
+        m.jump(0xa7, start);
+
+        int lo = chars.lo.length;
+        for (int s = 0; s < states; s++) {
+            m.mark(s);
+            int tag = label.get(s);
+            if (tag != 0) {
+                m.op(0x14).u2(cp.lng((long) tag << 32)).op(0x1d).op(0x85).op(0x81).op(0x37).op(LAST);
+            }
+            // transitions as char intervals with their target, adjacent equal targets merged
+            List<int[]> ranges = new ArrayList<>();
+            for (int j = 0; j < lo; j++) {
+                int t = next.get(s * k + chars.cls[j]);
+                if (t < 0) continue;
+                int from = chars.lo[j], to = j + 1 < lo ? chars.lo[j + 1] - 1 : Character.MAX_VALUE;
+                int[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+                if (last != null && last[2] == t && last[1] + 1 == from) last[1] = to;
+                else ranges.add(new int[]{from, to, t});
+            }
+            if (ranges.isEmpty()) {
+                m.jump(0xa7, done);
+                continue;
+            }
+            m.op(0x1d).op(0x15).op(LEN).jump(0xa2, done);             // if (i >= len) done
+            m.op(0x2b).op(0x1d).op(0xb9).u2(charAt).op(2).op(0);      // c = s.charAt(i++)
+            m.op(0x36).op(C).op(0x84).op(I).op(1);
+
+            // the whole char range as segments {from, target}, gaps going to done
+            List<int[]> segs = new ArrayList<>();
+            int at = 0;
+            for (int[] r : ranges) {
+                if (r[0] > at) segs.add(new int[]{at, done});
+                segs.add(new int[]{r[0], r[2]});
+                at = r[1] + 1;
+            }
+            if (at <= Character.MAX_VALUE) segs.add(new int[]{at, done});
+
+            int min = ranges.get(0)[0], max = ranges.get(ranges.size() - 1)[1];
+            if (max < 128 && 16 + 4 * (max - min + 1) < 11 * segs.size()) {
+                int[] targets = new int[max - min + 1];
+                Arrays.fill(targets, done);
+                for (int[] r : ranges) {
+                    for (int c = r[0]; c <= r[1]; c++) targets[c - min] = r[2];
+                }
+                m.op(0x15).op(C).tableswitch(min, targets, done);
+            } else {
+                tree(m, cp, segs, 0, segs.size() - 1);
+            }
+        }
+        m.mark(done);
+        m.op(0x16).op(LAST).op(0xad);                                 // return last
+        byte[] body = m.finish();
+        if (body.length > MAX_CODE) throw new IllegalArgumentException("DFA too large to compile: " + states + " states");
+
+        int longest = cp.utf8("longest"), desc = cp.utf8("(Ljava/lang/CharSequence;I)J");
+        int initName = cp.utf8("<init>"), initDesc = cp.utf8("()V");
+
+        Bytes out = new Bytes();
+        out.u4(0xcafebabe).u2(0).u2(49);
+        cp.writeTo(out);
+        out.u2(0x0031).u2(thisClass).u2(object);  // public final super
+        out.u2(1).u2(iface);
+        out.u2(0);                                // fields
+        out.u2(2);
+        out.u2(0x0001).u2(initName).u2(initDesc).u2(1);
+        out.u2(code).u4(12 + 5).u2(1).u2(1).u4(5);
+        out.u1(0x2a).u1(0xb7).u2(init).u1(0xb1);
+        out.u2(0).u2(0);
+        out.u2(0x0001).u2(longest).u2(desc).u2(1);
+        out.u2(code).u4(12 + body.length).u2(4).u2(8).u4(body.length);
+        out.bytes(body);
+        out.u2(0).u2(0);
+        out.u2(0);                                // class attributes
+        return out.toArray();
+    }
+
+    /** Binary search over {@code segs[lo..hi]}: one compare per level, then a jump to the target state. */
+    private static void tree(Code m, Pool cp, List<int[]> segs, int lo, int hi) {
+        if (lo == hi) {
+            m.jump(0xa7, segs.get(lo)[1]);
+            return;
+        }
+        int mid = (lo + hi + 1) >>> 1, left = m.newLabel();
+        m.op(0x15).op(C).push(segs.get(mid)[0], cp).jump(0xa1, left); // if (c < from) left
+        tree(m, cp, segs, mid, hi);
+        m.mark(left);
+        tree(m, cp, segs, lo, mid - 1);
+    }
+
+    static class Bytes {
+        byte[] buf = new byte[256];
+        int len;
+
+        Bytes u1(int b) {
+            if (len == buf.length) buf = Arrays.copyOf(buf, len * 2);
+            buf[len++] = (byte) b;
+            return this;
+        }
+
+        Bytes u2(int v) {
+            return u1(v >>> 8).u1(v);
+        }
+
+        Bytes u4(int v) {
+            return u2(v >>> 16).u2(v);
+        }
+
+        Bytes bytes(byte[] b) {
+            for (byte x : b) u1(x);
+            return this;
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(buf, len);
+        }
+    }
+
+    /** Constant pool, deduplicated by entry content. */
+    static final class Pool {
+        private final Bytes out = new Bytes();
+        private final Map<String, Integer> ids = new HashMap<>();
+        private int next = 1;
+
+        private int entry(String key, int slots, Bytes body) {
+            Integer id = ids.get(key);
+            if (id != null) return id;
+            id = next;
+            next += slots;
+            ids.put(key, id);
+            out.bytes(body.toArray());
+            return id;
+        }
+
+        int utf8(String s) {
+            Bytes b = new Bytes().u1(1).u2(s.length());
+            for (int i = 0; i < s.length(); i++) b.u1(s.charAt(i)); // names here are plain ASCII
+            return entry("U" + s, 1, b);
+        }
+
+        int cls(String name) {
+            int n = utf8(name);
+            return entry("C" + name, 1, new Bytes().u1(7).u2(n));
+        }
+
+        /** tag 10 is a method ref, 11 an interface method ref. */
+        int ref(int tag, int owner, String name, String desc) {
+            int nt = entry("N" + name + desc, 1, new Bytes().u1(12).u2(utf8(name)).u2(utf8(desc)));
+            return entry("R" + tag + owner + "." + name + desc, 1, new Bytes().u1(tag).u2(owner).u2(nt));
+        }
+
+        int integer(int v) {
+            return entry("I" + v, 1, new Bytes().u1(3).u4(v));
+        }
+
+        int lng(long v) {
+            return entry("J" + v, 2, new Bytes().u1(5).u4((int) (v >>> 32)).u4((int) v));
+        }
+
+        void writeTo(Bytes b) {
+            b.u2(next).bytes(out.toArray());
+        }
+    }
+
+    /** Method body with forward labels patched once every block is placed. */
+    static final class Code extends Bytes {
+        private int[] labelAt;
+        private int labels;
+        private final List<int[]> fixups = new ArrayList<>(); // {field, insn, label, width}
+
+        Code(int labels) {
+            this.labels = labels;
+            this.labelAt = new int[labels];
+            Arrays.fill(labelAt, -1);
+        }
+
+        int newLabel() {
+            if (labels == labelAt.length) {
+                labelAt = Arrays.copyOf(labelAt, labels * 2);
+                Arrays.fill(labelAt, labels, labelAt.length, -1);
+            }
+            return labels++;
+        }
+
+        void mark(int label) {
+            labelAt[label] = len;
+        }
+
+        @Override
+        Code u1(int b) {
+            super.u1(b);
+            return this;
+        }
+
+        @Override
+        Code u2(int v) {
+            super.u2(v);
+            return this;
+        }
+
+        Code op(int b) {
+            return u1(b);
+        }
+
+        Code jump(int opcode, int label) {
+            int insn = len;
+            u1(opcode);
+            fixups.add(new int[]{len, insn, label, 2});
+            u2(0);
+            return this;
+        }
+
+        Code push(int v, Pool cp) {
+            if (v >= -1 && v <= 5) return op(0x03 + v);
+            if (v >= Byte.MIN_VALUE && v <= Byte.MAX_VALUE) return op(0x10).op(v);
+            if (v >= Short.MIN_VALUE && v <= Short.MAX_VALUE) return op(0x11).u2(v);
+            return op(0x13).u2(cp.integer(v));
+        }
+
+        void tableswitch(int low, int[] targets, int dflt) {
+            int insn = len;
+            u1(0xaa);
+            while (len % 4 != 0) u1(0);
+            fixups.add(new int[]{len, insn, dflt, 4});
+            u4(0);
+            u4(low);
+            u4(low + targets.length - 1);
+            for (int t : targets) {
+                fixups.add(new int[]{len, insn, t, 4});
+                u4(0);
+            }
+        }
+
+        byte[] finish() {
+            for (int[] f : fixups) {
+                int off = labelAt[f[2]] - f[1];
+                if (f[3] == 2) {
+                    buf[f[0]] = (byte) (off >>> 8);
+                    buf[f[0] + 1] = (byte) off;
+                } else {
+                    for (int b = 0; b < 4; b++) buf[f[0] + b] = (byte) (off >>> (24 - 8 * b));
+                }
+            }
+            return toArray();
+        }
+    }
+
+    public static void main(String[] args) {
+        LexerGenerator spec = new LexerGenerator().skip(" ");
+        StringBuilder keywords = new StringBuilder();
+        for (Lexicon.Keyword kw : Lexicon.Keyword.values()) keywords.append(keywords.length() > 0 ? "|" : "").append(kw.text());
+        spec.rule(TokenBuffer.KEYWORD, keywords.toString()).rule(TokenBuffer.IDENTIFIER, "[a-z][a-z0-9]*");
+        LexerGenerator.Scanner sc = spec.generate();
+        Compiled dfa = compile(sc);
+
+        StringBuilder sb = new StringBuilder();
+        Random rnd = new Random(1);
+        while (sb.length() < 8 * 1024 * 1024) {
+            if (rnd.nextBoolean()) sb.append(Lexicon.Keyword.values()[rnd.nextInt(14)].text());
+            else for (int n = 1 + rnd.nextInt(10); n > 0; n--) sb.append((char) ('a' + rnd.nextInt(26)));
+            sb.append(' ');
+        }
+        String text = sb.toString();
+
+        for (int round = 0; round < 5; round++) {
+            long t0 = System.nanoTime();
+            int a = countTable(sc, text);
+            long t1 = System.nanoTime();
+            int b = countCompiled(dfa, text);
+            long t2 = System.nanoTime();
+            System.out.println("table: " + a + " tokens in " + (t1 - t0) / 1_000_000 + " ms, compiled: " + b
+                    + " tokens in " + (t2 - t1) / 1_000_000 + " ms");
+        }
+    }
+
+    private static int countTable(LexerGenerator.Scanner sc, String text) {
+        int[] n = new int[1];
+        sc.scan(text, (kind, src, off, len, pos, line) -> n[0]++);
+        return n[0];
+    }
+
+    private static int countCompiled(Compiled dfa, String text) {
+        int n = 0;
+        for (int pos = 0; pos < text.length(); ) {
+            long r = dfa.longest(text, pos);
+            int end = r < 0 ? pos + 1 : (int) r;
+            if (r >= 0 && (r >>> 32) != 1) n++; // tag 1 is the skip rule
+            pos = end;
+        }
+        return n;
+    }
+}
@@ -1,18 +1,128 @@
 package com.example.demo;
 
+import java.nio.ByteBuffer;
 import java.util.*;
-public class ErrorHandler {
-    private String[] errs;
+
+/**
+ * Diagnostics are kept as primitive records in parallel growable arrays: a code, a line, and up
+ * to two arguments that point back into the source (or, for {@link #logError}, into a message
+ * list). Text and columns are only computed when a record is read, so a broken input costs one
+ * record per error however many are never printed.
+ */
+public class ErrorHandler implements TokenSink {
+    public static final byte CUSTOM = 0, MISSING_SEMICOLON = 1, INVALID_IDENTIFIER = 2, UNKNOWN_SYMBOL = 3,
+            UNTERMINATED_STRING = 4, UNMATCHED_CLOSE = 5, MISMATCHED = 6, UNMATCHED_OPEN = 7;
+
+    /** Receives diagnostics as they are recorded; {@link #message} and friends read them lazily. */
+    public interface Sink {
+        void report(ErrorHandler diags, int i);
+
+        /** {@code count} more diagnostics on {@code line} were recorded but not streamed; sent in line order at the end of input. */
+        default void suppressed(int line, int count) {
+        }
+    }
+
+    private static final int DEDUP_WINDOW = 8;
+
+    private byte[] codes = new byte[16];
+    private int[] lines = new int[16];
+    private int[] args = new int[16];   // source offset of the token, or index into customs
+    private int[] lens = new int[16];   // token length; for CUSTOM the column, 0 if none
+    private int[] others = new int[16]; // source offset of the matching bracket, or -1
     private int errCnt;
+    private final List<String> customs = new ArrayList<>();
+    private CharSequence src;
+    private int colLine = -1; // line whose start offset column() found last
+    private int colStart;
+
+    private Sink sink;
+    private int perLine = Integer.MAX_VALUE;
+    private final TreeMap<Integer, int[]> streamed = new TreeMap<>(); // diagnostics seen per line
+
+    // state of the token-stream checks
+    private TokenSink next;
+    private byte[] stk = new byte[64];
+    private int[] stkPos = new int[64];
+    private int[] stkLine = new int[64];
+    private int top = -1;
+    private int curLine;
+    private boolean exempt;
+    private byte lastKind;
+    private int lastOff;
+    private int lastLen;
+    private int only = -1;   // bit per code that record() keeps
+    private int lineBase;    // added to every recorded line
 
     public ErrorHandler() {
-        errs = new String[100]; // Limit errors to 100
-        errCnt = 0;
+    }
+
+    /**
+     * Streams diagnostics to {@code sink} as they are found, at most {@code perLine} per line and
+     * repeats of the same complaint about the same text once; all are still recorded.
+     */
+    public ErrorHandler stream(Sink sink, int perLine) {
+        this.sink = sink;
+        this.perLine = perLine;
+        return this;
     }
 
     public void logError(int line, String msg) {
-        if (errCnt < 100) {
-            errs[errCnt++] = "Error on line " + line + ": " + msg;
+        customs.add(msg);
+        record(CUSTOM, line, customs.size() - 1, 0, -1);
+    }
+
+    private void record(byte code, int line, int arg, int len, int other) {
+        if ((only >> code & 1) == 0) return;
+        line += lineBase;
+        if (errCnt == codes.length) {
+            int cap = errCnt * 2;
+            codes = Arrays.copyOf(codes, cap);
+            lines = Arrays.copyOf(lines, cap);
+            args = Arrays.copyOf(args, cap);
+            lens = Arrays.copyOf(lens, cap);
+            others = Arrays.copyOf(others, cap);
+        }
+        codes[errCnt] = code;
+        lines[errCnt] = line;
+        args[errCnt] = arg;
+        lens[errCnt] = len;
+        others[errCnt] = other;
+        errCnt++;
+        if (sink != null) emit(errCnt - 1);
+    }
+
+    private boolean sameText(int a, int b, int len, byte code) {
+        if (code == CUSTOM) return customs.get(a).equals(customs.get(b));
+        if (code != INVALID_IDENTIFIER && code != UNKNOWN_SYMBOL) return code == MISSING_SEMICOLON || a == b;
+        for (int k = 0; k < len; k++) {
+            if (src.charAt(a + k) != src.charAt(b + k)) return false;
+        }
+        return true;
+    }
+
+    private void emit(int i) {
+        // lines can come round again, e.g. unclosed brackets found at the end, so count each one apart
+        int[] n = streamed.computeIfAbsent(lines[i], k -> new int[2]); // streamed, held back
+        if (n[0] < perLine && !repeats(i)) {
+            n[0]++;
+            sink.report(this, i);
+        } else {
+            n[1]++;
+        }
+    }
+
+    // the same complaint about the same text just made on the same line is streamed once
+    private boolean repeats(int i) {
+        for (int j = i - 1; j >= 0 && j >= i - DEDUP_WINDOW && lines[j] == lines[i]; j--) {
+            if (codes[j] == codes[i] && lens[j] == lens[i] && others[j] == -1 && others[i] == -1
+                    && sameText(args[j], args[i], lens[i], codes[i])) return true;
+        }
+        return false;
+    }
+
+    private void flushSuppressed() {
+        for (Map.Entry<Integer, int[]> e : streamed.entrySet()) {
+            if (e.getValue()[1] > 0) sink.suppressed(e.getKey(), e.getValue()[1]);
         }
     }
 
@@ -20,111 +130,222 @@ public class ErrorHandler {
         return errCnt > 0;
     }
 
-    public void printErrors() {
-        if (errCnt == 0) {
-            System.out.println("No errors found.");
-        } else {
-            System.out.println("Compilation Errors:");
-            for (int i = 0; i < errCnt; i++) {
-                System.out.println(errs[i]);
-            }
+    public int size() {
+        return errCnt;
+    }
+
+    public byte code(int i) {
+        return codes[i];
+    }
+
+    public int line(int i) {
+        return lines[i];
+    }
+
+    /**
+     * 1-based column of the offending token, or just past the last token of the line for a missing
+     * semicolon; 0 for {@link #logError} messages. Columns count source chars, so bytes for UTF-8 input.
+     */
+    public int column(int i) {
+        if (codes[i] == CUSTOM) return lens[i];
+        if (codes[i] == MISSING_SEMICOLON) {
+            // the last token may be a string running over several lines, so count back from its end
+            int end = args[i] + lens[i], nl = end - 1;
+            while (nl >= 0 && src.charAt(nl) != '\n') nl--;
+            return end - nl;
+        }
+        int pos = args[i];
+        if (lines[i] != colLine) {
+            int nl = pos - 1;
+            while (nl >= 0 && src.charAt(nl) != '\n') nl--;
+            colLine = lines[i];
+            colStart = nl + 1;
         }
+        return pos - colStart + 1;
     }
 
-    public void checkBrackets(String code) {
-        char[] stk = new char[100];
-        int top = -1, line = 1;
-
-        for (int i = 0; i < code.length(); i++) {
-            char c = code.charAt(i);
-            if (c == '\n') line++;
-            else if (c == '(' || c == '{') {
-                if (top < 99) stk[++top] = c;
-            } else if (c == ')' || c == '}') {
-                if (top == -1) logError(line, "Unmatched closing bracket: " + c);
-                else {
-                    char last = stk[top--];
-                    if ((last == '(' && c != ')') || (last == '{' && c != '}')) {
-                        logError(line, "Mismatched brackets: " + last + " and " + c);
-                    }
+    public String message(int i) {
+        return switch (codes[i]) {
+            case CUSTOM -> customs.get(args[i]);
+            case MISSING_SEMICOLON -> "Missing semicolon.";
+            case INVALID_IDENTIFIER -> "Invalid identifier: " + Utf8Lexer.text(src, args[i], lens[i]);
+            case UNKNOWN_SYMBOL -> "Unknown symbol: " + Utf8Lexer.text(src, args[i], lens[i]);
+            case UNTERMINATED_STRING -> "Unterminated string.";
+            case UNMATCHED_CLOSE -> "Unmatched closing bracket: " + src.charAt(args[i]);
+            case MISMATCHED -> "Mismatched brackets: " + src.charAt(others[i]) + " and " + src.charAt(args[i]);
+            default -> "Unmatched opening bracket: " + src.charAt(args[i]);
+        };
+    }
+
+    public String format(int i) {
+        int col = column(i);
+        return "Error on line " + lines[i] + (col > 0 ? ", column " + col : "") + ": " + message(i);
+    }
+
+    public String report() {
+        if (errCnt == 0) return "No errors found.\n";
+        StringBuilder sb = new StringBuilder("Compilation Errors:\n");
+        for (int i = 0; i < errCnt; i++) sb.append(format(i)).append('\n');
+        return sb.toString();
+    }
+
+    public void printErrors() {
+        System.out.print(report());
+    }
+
+    /**
+     * Runs the checks on tokens as a lexer emits them and passes every token on to {@code next},
+     * so a file is validated and lexed in the same pass. Messages are formatted from the source
+     * the lexer passes in, so token offsets must index it directly, as they do for a whole
+     * {@code String} or {@code ByteBuffer}. Diagnostics add to those already recorded, as
+     * {@link #logError} does; {@link #reset} drops them.
+     */
+    public TokenSink checking(TokenSink next) {
+        freeze();
+        this.next = next;
+        top = -1;
+        curLine = 0;
+        colLine = -1;
+        return this;
+    }
+
+    @Override
+    public void token(byte kind, CharSequence src, int off, int len, long pos, int line) {
+        this.src = src;
+        if (line != curLine) {
+            checkSemicolon();
+            curLine = line;
+            Lexicon.Keyword k = kind == TokenBuffer.KEYWORD ? Lexicon.keyword(src, off, len) : null;
+            exempt = k == Lexicon.Keyword.AGAR || k == Lexicon.Keyword.JABTAK;
+        }
+        lastKind = kind;
+        lastOff = off;
+        lastLen = len;
+
+        switch (kind) {
+            case TokenBuffer.OPEN_BRACKET, TokenBuffer.OPEN_CURLY -> {
+                if (++top == stk.length) {
+                    stk = Arrays.copyOf(stk, top * 2);
+                    stkPos = Arrays.copyOf(stkPos, top * 2);
+                    stkLine = Arrays.copyOf(stkLine, top * 2);
                 }
+                stk[top] = kind;
+                stkPos[top] = off;
+                stkLine[top] = line;
+            }
+            case TokenBuffer.CLOSE_BRACKET, TokenBuffer.CLOSE_CURLY -> {
+                if (top == -1) record(UNMATCHED_CLOSE, line, off, 1, -1);
+                else if (stk[top--] != kind - 1) record(MISMATCHED, line, off, 1, stkPos[top + 1]);
+            }
+            case TokenBuffer.UNKNOWN -> {
+                char c = src.charAt(off);
+                if (c == '"') record(UNTERMINATED_STRING, line, off, len, -1);
+                else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+                    record(INVALID_IDENTIFIER, line, off, len, -1);
+                } else {
+                    record(UNKNOWN_SYMBOL, line, off, len, -1);
+                }
+            }
+            default -> {
             }
         }
+        if (next != null) next.token(kind, src, off, len, pos, line);
+    }
 
-        while (top != -1) logError(line, "Unmatched opening bracket: " + stk[top--]);
+    @Override
+    public void end() {
+        checkSemicolon();
+        for (; top != -1; top--) record(UNMATCHED_OPEN, stkLine[top], stkPos[top], 1, -1);
+        if (sink != null) flushSuppressed();
+        streamed.clear();
+        if (next != null) next.end();
     }
 
-    public void checkIdentifiers(String line, int lineNum) {
-        String[] words = split(line, ' ');
-        for (int i = 0; i < words.length; i++) {
-            if (!isValidID(words[i])) {
-                logError(lineNum, "Invalid identifier: " + words[i]);
+    // a statement line ends in ';', or opens or closes a block
+    private void checkSemicolon() {
+        if (curLine == 0 || exempt) return;
+        if (lastKind != TokenBuffer.SEMICOLON && lastKind != TokenBuffer.OPEN_CURLY && lastKind != TokenBuffer.CLOSE_CURLY) {
+            // reported where the last token ends, as column() counts; a string can end lines later
+            int line = curLine;
+            for (int k = lastOff; k < lastOff + lastLen; k++) {
+                if (src.charAt(k) == '\n') line++;
             }
+            record(MISSING_SEMICOLON, line, lastOff, lastLen, -1);
         }
     }
 
-    private boolean isValidID(String word) {
-        if (word.length() == 0) return false;
-        char first = word.charAt(0);
-        if (first < 'a' || first > 'z') return false;
+    /** Checks and lexes {@code code} in one pass; comment lines carry no tokens and so are never checked. */
+    public TokenBuffer analyze(String code) {
+        Telemetry.Analyze ev = Telemetry.Analyze.start();
+        TokenBuffer toks = new TokenBuffer(code);
+        int before = errCnt;
+        SymbolTable.Lexer lx = new SymbolTable.Lexer();
+        lx.run(code, 0, code.length(), 0, true, checking(toks));
+        ev.done(lines(lx, code, 0, code.length()), errCnt - before);
+        return toks;
+    }
 
-        for (int i = 1; i < word.length(); i++) {
-            char c = word.charAt(i);
-            if (!((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9'))) {
-                return false;
-            }
-        }
-        return true;
+    /** Same as {@link #analyze(String)} over UTF-8 bytes, without decoding them. */
+    public TokenBuffer analyze(ByteBuffer code) {
+        Telemetry.Analyze ev = Telemetry.Analyze.start();
+        TokenBuffer toks = new TokenBuffer(code);
+        int before = errCnt;
+        Utf8Lexer.Source s = new Utf8Lexer.Source(code);
+        SymbolTable.Lexer lx = new SymbolTable.Lexer();
+        lx.run(s, code.position(), code.limit(), 0, true, checking(toks));
+        ev.done(lines(lx, s, code.position(), code.limit()), errCnt - before);
+        return toks;
     }
 
-    public void checkSemicolons(String line, int lineNum) {
-        if (!line.endsWith(";") && !line.startsWith("agar") && !line.startsWith("jabtak")) {
-            logError(lineNum, "Missing semicolon.");
-        }
+    // the lexer counts lines from 1 up at each newline; a final newline ends a line rather than starting one
+    private static int lines(SymbolTable.Lexer lx, CharSequence s, int from, int to) {
+        return to > from && s.charAt(to - 1) != '\n' ? lx.line : lx.line - 1;
     }
 
-    public void analyze(String code) {
-        String[] lines = split(code, '\n');
-        for (int i = 0; i < lines.length; i++) {
-            String ln = trim(lines[i]);
-            if (ln.length() == 0 || startsWith(ln, "~~") || startsWith(ln, "-%")) continue;
-            checkIdentifiers(ln, i + 1);
-            checkSemicolons(ln, i + 1);
-        }
-        checkBrackets(code);
+    /** Adds bracket errors in {@code code} to the log; a thin wrapper over the token-stream checks. */
+    public void checkBrackets(String code) {
+        check(code, 0, 1 << UNMATCHED_CLOSE | 1 << MISMATCHED | 1 << UNMATCHED_OPEN);
     }
 
-    private String[] split(String str, char delim) {
-        int cnt = 1;
-        for (int i = 0; i < str.length(); i++) {
-            if (str.charAt(i) == delim) cnt++;
-        }
+    /** Adds invalid-identifier errors in one source line, numbered {@code lineNum}, to the log. */
+    public void checkIdentifiers(String line, int lineNum) {
+        check(line, lineNum - 1, 1 << INVALID_IDENTIFIER);
+    }
 
-        String[] res = new String[cnt];
-        int idx = 0, start = 0;
-        for (int i = 0; i < str.length(); i++) {
-            if (str.charAt(i) == delim) {
-                res[idx++] = str.substring(start, i);
-                start = i + 1;
-            }
-        }
-        res[idx] = str.substring(start);
-        return res;
+    /** Adds a missing-semicolon error for one source line, numbered {@code lineNum}, to the log. */
+    public void checkSemicolons(String line, int lineNum) {
+        check(line, lineNum - 1, 1 << MISSING_SEMICOLON);
     }
 
-    private String trim(String str) {
-        int start = 0, end = str.length() - 1;
-        while (start <= end && str.charAt(start) == ' ') start++;
-        while (end >= start && str.charAt(end) == ' ') end--;
-        return str.substring(start, end + 1);
+    // appends the errors of the given codes in text to the log, with lines shifted by base
+    private void check(String text, int base, int mask) {
+        only = mask;
+        lineBase = base;
+        try {
+            new SymbolTable.Lexer().run(text, 0, text.length(), 0, true, checking(null));
+        } finally {
+            only = -1;
+            lineBase = 0;
+        }
     }
 
-    private boolean startsWith(String str, String prefix) {
-        if (str.length() < prefix.length()) return false;
-        for (int i = 0; i < prefix.length(); i++) {
-            if (str.charAt(i) != prefix.charAt(i)) return false;
+    // records point into the source being checked; before another replaces it, keep them as text
+    private void freeze() {
+        for (int i = 0; i < errCnt; i++) {
+            if (codes[i] == CUSTOM) continue;
+            int col = column(i);
+            customs.add(message(i));
+            codes[i] = CUSTOM;
+            args[i] = customs.size() - 1;
+            lens[i] = col;
+            others[i] = -1;
         }
-        return true;
+    }
+
+    /** Drops every recorded diagnostic. */
+    public void reset() {
+        errCnt = 0;
+        customs.clear();
     }
 
     private String generateErrPattern(String msg) {
@@ -139,7 +360,26 @@ public class ErrorHandler {
         String testCode = "adad x = 5\nagar (x > 3) {\nlikho(\"Bara hai!\")\n} warna {\nlikho(\"Chota hai!\");\n";
 
         ErrorHandler errHandler = new ErrorHandler();
-        errHandler.analyze(testCode);
+        TokenBuffer toks = errHandler.analyze(testCode);
         errHandler.printErrors();
+        System.out.println(toks.size() + " tokens");
+
+        // a large broken input: every error is recorded, only a few per line are streamed
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) sb.append('(');
+        sb.append("\nadad X = 1 @ 2 @ 3 @;\n");
+        ErrorHandler big = new ErrorHandler().stream(new Sink() {
+            @Override
+            public void report(ErrorHandler d, int i) {
+                System.out.println(d.format(i));
+            }
+
+            @Override
+            public void suppressed(int line, int count) {
+                System.out.println("  ... " + count + " more on line " + line);
+            }
+        }, 3);
+        big.analyze(sb.toString());
+        System.out.println(big.size() + " errors recorded");
     }
 }
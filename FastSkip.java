@@ -0,0 +1,110 @@
+package com.example.demo;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Bulk searches the lexers use to cross comment bodies, string bodies and blank runs without
+ * looking at every char in the main loop. On a {@code String} they go through
+ * {@link String#indexOf(int, int)}, which HotSpot compiles to SIMD code; on bytes, including
+ * {@link Utf8Lexer} sources, they test eight at a time with SWAR arithmetic on {@code long} words.
+ * (The incubating vector API would need {@code --add-modules} on every compile and launch, so it
+ * is not used.)
+ */
+final class FastSkip {
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+
+    private FastSkip() {
+    }
+
+    /** Index of the first {@code c} in {@code s[from, to)}, or -1. */
+    static int indexOf(CharSequence s, char c, int from, int to) {
+        if (s instanceof Utf8Lexer.Source && c < 128) return indexOf(((Utf8Lexer.Source) s).buf, (byte) c, from, to);
+        // String.indexOf cannot stop at to; only use it when overshooting costs no more than the range
+        if (s instanceof String && s.length() - to <= to - from) {
+            int i = ((String) s).indexOf(c, from);
+            return i < to ? i : -1;
+        }
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) == c) return i;
+        }
+        return -1;
+    }
+
+    /** Number of {@code c} in {@code s[from, to)}. */
+    static int count(CharSequence s, char c, int from, int to) {
+        int n = 0;
+        for (int i = indexOf(s, c, from, to); i >= 0; i = indexOf(s, c, i + 1, to)) n++;
+        return n;
+    }
+
+    /** End of the run of spaces and tabs starting at {@code from}. */
+    static int skipBlanks(CharSequence s, int from, int to) {
+        int i = from;
+        while (i < to) {
+            char c = s.charAt(i);
+            if (c != ' ' && c != '\t') break;
+            i++;
+        }
+        return i;
+    }
+
+    // a byte of the word is zero exactly when the matching byte of the result has its high bit set
+    private static long zeros(long word) {
+        return (word - ONES) & ~word & HIGHS;
+    }
+
+    /** Index of the first {@code b} in {@code a[from, to)}, or -1. */
+    static int indexOf(byte[] a, byte b, int from, int to) {
+        long pattern = (b & 0xffL) * ONES;
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            long hit = zeros((long) LONGS.get(a, i) ^ pattern);
+            if (hit != 0) return i + (Long.numberOfTrailingZeros(hit) >>> 3);
+        }
+        for (; i < to; i++) {
+            if (a[i] == b) return i;
+        }
+        return -1;
+    }
+
+    /** Index of the first {@code b} in {@code buf[from, to)} by absolute position, or -1. */
+    static int indexOf(ByteBuffer buf, byte b, int from, int to) {
+        if (buf.hasArray()) {
+            int base = buf.arrayOffset();
+            int i = indexOf(buf.array(), b, base + from, base + to);
+            return i < 0 ? -1 : i - base;
+        }
+        long pattern = (b & 0xffL) * ONES;
+        ByteBuffer le = buf.order() == ByteOrder.LITTLE_ENDIAN ? buf : buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            long hit = zeros(le.getLong(i) ^ pattern);
+            if (hit != 0) return i + (Long.numberOfTrailingZeros(hit) >>> 3);
+        }
+        for (; i < to; i++) {
+            if (buf.get(i) == b) return i;
+        }
+        return -1;
+    }
+
+    /** Number of {@code b} in {@code a[from, to)}. */
+    static int count(byte[] a, byte b, int from, int to) {
+        long pattern = (b & 0xffL) * ONES;
+        int n = 0, i = from;
+        for (; i + 8 <= to; i += 8) {
+            long x = (long) LONGS.get(a, i) ^ pattern;
+            // exact per-byte zero test: no borrow can cross bytes when the high bits are masked first
+            long hit = ~(((x & ~HIGHS) + ~HIGHS) | x) & HIGHS;
+            n += Long.bitCount(hit);
+        }
+        for (; i < to; i++) {
+            if (a[i] == b) n++;
+        }
+        return n;
+    }
+}
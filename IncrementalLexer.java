@@ -0,0 +1,95 @@
+package com.example.demo;
+
+/**
+ * Re-lexes a {@link SymbolTable#scan(String)} token stream after an edit. Lexing restarts at the
+ * last token before the edit that begins in a clean lexer state and stops as soon as it emits a
+ * token identical to an old token past the edit; from that point both streams continue the same
+ * way, so the old tail is reused with shifted offsets and lines.
+ */
+public final class IncrementalLexer {
+    private static final int FIRST_WINDOW = 64;
+    private static final int MAX_WINDOW = 16 * 1024;
+
+    private IncrementalLexer() {
+    }
+
+    public static TokenBuffer relex(TokenBuffer prev, int offset, int removed, CharSequence inserted) {
+        CharSequence old = prev.source();
+        String text = new StringBuilder(old.length() - removed + inserted.length())
+                .append(old, 0, offset)
+                .append(inserted)
+                .append(old, offset + removed, old.length())
+                .toString();
+        return relex(prev, text, offset, removed, inserted.length());
+    }
+
+    /** {@code text} is the edited source: {@code prev.source()} with {@code [offset, offset + removed)} replaced by {@code inserted} chars. */
+    public static TokenBuffer relex(TokenBuffer prev, CharSequence text, int offset, int removed, int inserted) {
+        CharSequence old = prev.source();
+        int delta = inserted - removed;
+        int lineDelta = count(text, offset, offset + inserted) - count(old, offset, offset + removed);
+
+        int k = prev.indexBefore(offset);
+        // a token abutting its predecessor may have been pending when it started
+        while (k > 0 && prev.start(k - 1) + prev.length(k - 1) == prev.start(k)) k--;
+        int from = k < 0 ? 0 : prev.start(k), keep = Math.max(k, 0);
+
+        TokenBuffer toks = new TokenBuffer(text, prev.size() + 16);
+        toks.append(prev, 0, keep, 0, 0);
+        SymbolTable.Lexer lx = new SymbolTable.Lexer();
+        lx.line = k < 0 ? 1 : prev.line(k);
+
+        int editEnd = offset + inserted, len = text.length();
+        int oi = prev.indexBefore(offset + removed) + 1;
+        int pos = from, checked = keep, window = FIRST_WINDOW;
+        while (true) {
+            int to = pos >= editEnd ? Math.min(len, pos + window) : Math.min(len, editEnd + window);
+            pos = lx.run(text, pos, to, 0, to == len, toks);
+            window = Math.min(window * 2, MAX_WINDOW);
+
+            for (; checked < toks.size(); checked++) {
+                int start = toks.start(checked);
+                if (start < editEnd) continue;
+                while (oi < prev.size() && prev.start(oi) + delta < start) oi++;
+                if (oi == prev.size()) break;
+                if (prev.start(oi) + delta == start && prev.kind(oi) == toks.kind(checked)
+                        && prev.length(oi) == toks.length(checked)) {
+                    toks.truncate(checked + 1);
+                    toks.append(prev, oi + 1, prev.size(), delta, lineDelta);
+                    return toks;
+                }
+            }
+            if (to == len) return toks;
+        }
+    }
+
+    private static int count(CharSequence s, int from, int to) {
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) == '\n') n++;
+        }
+        return n;
+    }
+
+    public static void main(String[] args) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) sb.append("adad x").append(i).append(" = ").append(i).append("; ~~ line\n");
+        String code = sb.toString();
+        TokenBuffer toks = SymbolTable.scan(code);
+
+        int at = code.length() / 2;
+        String edit = code.substring(0, at) + "y" + code.substring(at);
+        long best = Long.MAX_VALUE;
+        TokenBuffer edited = null;
+        for (int i = 0; i < 50; i++) {
+            long t0 = System.nanoTime();
+            edited = relex(toks, edit, at, 0, 1);
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        System.out.println("typed one char: " + edited.size() + " tokens in " + best / 1000 + " us");
+
+        long t0 = System.nanoTime();
+        TokenBuffer opened = relex(toks, 0, 0, "-%");
+        System.out.println("opened comment: " + opened.size() + " tokens in " + (System.nanoTime() - t0) / 1000 + " us");
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.demo;
+
+import java.util.*;
+
+/**
+ * Matches a regex with a DFA that is built only as far as the input drives it. At most
+ * {@code capacity} DFA states are cached; when the cache fills it is flushed, and when flushes
+ * come faster than the cache pays for itself the rest of the input is matched by stepping the
+ * NFA state set directly. Memory stays bounded for any pattern.
+ * <p>
+ * Instances keep their cache between calls and are not thread-safe.
+ */
+public class LazyDFA {
+    public static final int DEFAULT_CAPACITY = 1024;
+    private static final int UNKNOWN = -2, DEAD = -1;
+    private static final int MIN_FLUSHES = 3;
+    private static final int MIN_CHARS_PER_STATE = 10;
+
+    private final RegexToNFA.Dense nfa;
+    private final int classes;
+    private final int capacity;
+    private final Map<RegexToNFA.BitKey, Integer> index = new HashMap<>();
+    private final long[][] sets;
+    private final boolean[] accept;
+    private final int[] next;
+    private int size;
+    private int flushes;
+    private int fallbacks;
+
+    public LazyDFA(String regex) {
+        this(RegexToNFA.Dense.of(regex), DEFAULT_CAPACITY);
+    }
+
+    LazyDFA(RegexToNFA.Dense nfa, int capacity) {
+        this.nfa = nfa;
+        this.classes = nfa.classes.size();
+        this.capacity = capacity;
+        this.sets = new long[capacity][];
+        this.accept = new boolean[capacity];
+        this.next = new int[capacity * classes];
+    }
+
+    public boolean matches(CharSequence s) {
+        int st = stateFor(nfa.closure[nfa.start]);
+        int len = s.length(), lastFlush = 0;
+        for (int i = 0; i < len; i++) {
+            int c = nfa.classOf(s.charAt(i));
+            int t = next[st * classes + c];
+            if (t == UNKNOWN) {
+                long[] out = new long[nfa.words];
+                if (!nfa.step(sets[st], c, out)) {
+                    next[st * classes + c] = DEAD;
+                    return false;
+                }
+                int before = flushes;
+                t = stateFor(out);
+                if (flushes == before) {
+                    next[st * classes + c] = t;
+                } else {
+                    if (flushes >= MIN_FLUSHES && i - lastFlush < (long) MIN_CHARS_PER_STATE * capacity) {
+                        fallbacks++;
+                        return simulate(out, s, i + 1);
+                    }
+                    lastFlush = i;
+                }
+            }
+            if (t == DEAD) return false;
+            st = t;
+        }
+        return accept[st];
+    }
+
+    private boolean simulate(long[] set, CharSequence s, int from) {
+        long[] cur = set, nxt = new long[nfa.words];
+        for (int i = from; i < s.length(); i++) {
+            if (!nfa.step(cur, nfa.classOf(s.charAt(i)), nxt)) return false;
+            long[] tmp = cur;
+            cur = nxt;
+            nxt = tmp == set ? new long[nfa.words] : tmp;
+        }
+        return nfa.accepts(cur);
+    }
+
+    private int stateFor(long[] set) {
+        RegexToNFA.BitKey key = new RegexToNFA.BitKey(set);
+        Integer id = index.get(key);
+        if (id != null) return id;
+        if (size == capacity) flush();
+        int st = size++;
+        sets[st] = set;
+        accept[st] = nfa.accepts(set);
+        Arrays.fill(next, st * classes, (st + 1) * classes, UNKNOWN);
+        index.put(key, st);
+        return st;
+    }
+
+    private void flush() {
+        index.clear();
+        Arrays.fill(sets, null);
+        size = 0;
+        flushes++;
+    }
+
+    public int cachedStates() {
+        return size;
+    }
+
+    public int flushes() {
+        return flushes;
+    }
+
+    public int fallbacks() {
+        return fallbacks;
+    }
+
+    public static void main(String[] args) {
+        StringBuilder re = new StringBuilder("(a|b)*a");
+        for (int i = 0; i < 20; i++) re.append("(a|b)");
+        LazyDFA lazy = new LazyDFA(RegexToNFA.Dense.of(re.toString()), 256);
+
+        Random rnd = new Random(1);
+        StringBuilder in = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) in.append(rnd.nextBoolean() ? 'a' : 'b');
+        long t0 = System.nanoTime();
+        boolean m = lazy.matches(in);
+        System.out.println("matched: " + m + " in " + (System.nanoTime() - t0) / 1_000_000 + " ms, cached states: "
+                + lazy.cachedStates() + ", flushes: " + lazy.flushes() + ", NFA fallbacks: " + lazy.fallbacks());
+    }
+}
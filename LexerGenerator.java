@@ -0,0 +1,181 @@
+package com.example.demo;
+
+import java.nio.IntBuffer;
+import java.util.*;
+
+/**
+ * Compiles an ordered token specification into one minimal DFA. Every rule's NFA hangs off a
+ * shared start state; a DFA state is tagged with the first rule whose accept state it contains,
+ * and minimization starts from the partition by tag so no two rules are ever merged. The scanner
+ * takes the longest match, preferring the earlier rule on ties, with one table lookup per char.
+ */
+public class LexerGenerator {
+    /** Kind of rules whose matches are dropped, such as whitespace and comments. */
+    public static final byte SKIP = -1;
+
+    private final List<Byte> kinds = new ArrayList<>();
+    private final List<String> regexes = new ArrayList<>();
+
+    public LexerGenerator rule(byte kind, String regex) {
+        kinds.add(kind);
+        regexes.add(regex);
+        return this;
+    }
+
+    public LexerGenerator skip(String regex) {
+        return rule(SKIP, regex);
+    }
+
+    /** FNV-1a over the rules, in order; equal specs always hash alike. */
+    long specHash() {
+        long h = 0xcbf29ce484222325L;
+        for (int r = 0; r < regexes.size(); r++) {
+            h = (h ^ (kinds.get(r) & 0xff)) * 0x100000001b3L;
+            String re = regexes.get(r);
+            for (int i = 0; i < re.length(); i++) h = (h ^ re.charAt(i)) * 0x100000001b3L;
+            h = (h ^ 0x10000) * 0x100000001b3L; // separator no char can produce
+        }
+        return h;
+    }
+
+    public Scanner generate() {
+        int n = regexes.size();
+        RegexToNFA.Arena a = new RegexToNFA.Arena();
+        int[] starts = new int[n], accepts = new int[n];
+        for (int r = 0; r < n; r++) {
+            RegexToNFA.parse(regexes.get(r), a);
+            starts[r] = a.start;
+            accepts[r] = a.accept;
+        }
+        a.start = a.newState();
+        a.accept = -1;
+        int[] ruleOf = new int[a.states];
+        for (int r = 0; r < n; r++) {
+            a.edge(a.start, RegexToNFA.Arena.EPS, starts[r]);
+            ruleOf[accepts[r]] = r + 1;
+        }
+
+        RegexToNFA.Dense d = new RegexToNFA.Dense(a);
+        RegexToNFA.Subsets sub = new RegexToNFA.Subsets(d);
+        int[] label = new int[sub.size()];
+        for (int i = 0; i < label.length; i++) {
+            long[] set = sub.sets.get(i);
+            int best = 0;
+            for (int wi = 0; wi < set.length; wi++) {
+                for (long bits = set[wi]; bits != 0; bits &= bits - 1) {
+                    int s = (wi << 6) + Long.numberOfTrailingZeros(bits);
+                    int r = ruleOf[s];
+                    if (r != 0 && (best == 0 || r < best)) best = r;
+                }
+            }
+            label[i] = best;
+        }
+        if (label[0] != 0) throw new IllegalArgumentException("Rule matches the empty string: " + regexes.get(label[0] - 1));
+
+        RegexToNFA.Table table = RegexToNFA.minimize(sub.size(), sub.classes, sub.delta, label, 0, d.classes);
+        byte[] kindOf = new byte[n + 1];
+        for (int r = 0; r < n; r++) kindOf[r + 1] = kinds.get(r);
+        return new Scanner(table.states, table.classes, table.start, IntBuffer.wrap(table.next),
+                IntBuffer.wrap(table.label), table.chars, kindOf);
+    }
+
+    /** The Roman Urdu token set of {@link Lexicon}, with the comment syntax of {@link SymbolTable}. */
+    public static LexerGenerator romanUrdu() {
+        StringBuilder keywords = new StringBuilder();
+        for (Lexicon.Keyword k : Lexicon.Keyword.values()) {
+            if (keywords.length() > 0) keywords.append('|');
+            keywords.append(k.text());
+        }
+        LexerGenerator g = new LexerGenerator()
+                .skip("[ \t\n\r\f\u000B\u001C-\u001F][ \t\n\r\f\u000B\u001C-\u001F]*")
+                .skip("~~[^\\n]*")
+                .skip("-%([^%]|%%*[^%\\-])*%%*-")
+                .skip("-%([^%]|%%*[^%\\-])*%*") // an unterminated comment runs to the end
+                .rule(TokenBuffer.KEYWORD, keywords.toString())
+                .rule(TokenBuffer.IDENTIFIER, "[a-z][a-z0-9]*")
+                .rule(TokenBuffer.INTEGER, "[0-9][0-9]*")
+                .rule(TokenBuffer.FLOAT, "[0-9][0-9]*\\.[0-9][0-9]*")
+                .rule(TokenBuffer.STRING, "\"[^\"]*\"")
+                .rule(TokenBuffer.UNKNOWN, "\"[^\"]*");
+        for (char c = 0; c < 128; c++) {
+            byte kind = Lexicon.symbol(c);
+            if (kind != TokenBuffer.UNKNOWN) g.rule(kind, "\\" + c);
+        }
+        return g;
+    }
+
+    /**
+     * Maximal-munch scanner over a generated table. The table is read through {@link IntBuffer}s so
+     * it can live in an array or be used in place from a mapped {@link TableCache} file. Immutable,
+     * so one instance can be shared.
+     */
+    public static final class Scanner {
+        final int states;
+        final int classes;
+        final int start;
+        final IntBuffer next;  // states x classes, -1 = no transition
+        final IntBuffer label; // rule tag per state, 0 = rejecting
+        final RegexToNFA.CharClasses chars;
+        final byte[] kindOf;   // by rule tag
+
+        Scanner(int states, int classes, int start, IntBuffer next, IntBuffer label, RegexToNFA.CharClasses chars, byte[] kindOf) {
+            this.states = states;
+            this.classes = classes;
+            this.start = start;
+            this.next = next;
+            this.label = label;
+            this.chars = chars;
+            this.kindOf = kindOf;
+        }
+
+        public int states() {
+            return states;
+        }
+
+        public int classes() {
+            return classes;
+        }
+
+        /** Chars no rule matches come out one at a time as {@link TokenBuffer#UNKNOWN}. */
+        public void scan(CharSequence s, TokenSink out) {
+            IntBuffer next = this.next, label = this.label;
+            int k = classes, len = s.length(), line = 1;
+            for (int pos = 0; pos < len; ) {
+                int st = start, tag = 0, end = pos + 1;
+                for (int i = pos; i < len; i++) {
+                    st = next.get(st * k + chars.classOf(s.charAt(i)));
+                    if (st < 0) break;
+                    int t = label.get(st);
+                    if (t != 0) {
+                        tag = t;
+                        end = i + 1;
+                    }
+                }
+                byte kind = tag == 0 ? TokenBuffer.UNKNOWN : kindOf[tag];
+                if (kind != SKIP) out.token(kind, s, pos, end - pos, pos, line);
+                for (int i = pos; i < end; i++) {
+                    if (s.charAt(i) == '\n') line++;
+                }
+                pos = end;
+            }
+            out.end();
+        }
+
+        public TokenBuffer scan(String code) {
+            TokenBuffer toks = new TokenBuffer(code);
+            scan(code, toks);
+            return toks;
+        }
+    }
+
+    public static void main(String[] args) {
+        Scanner scanner = romanUrdu().generate();
+        System.out.println("Generated scanner: " + scanner.states() + " states x " + scanner.classes() + " classes");
+
+        String code = "adad x = 10;\nasharia pi = 3.14; ~~ comment\n-% block %- lafz s = \"salaam\";\nagar (x > 5) { likho(s); }";
+        TokenBuffer toks = scanner.scan(code);
+        for (int i = 0; i < toks.size(); i++) {
+            System.out.println(toks.line(i) + ": " + toks.text(i) + " -> " + TokenBuffer.kindName(toks.kind(i)));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.demo;
+
+import java.util.*;
+
+/**
+ * The single definition of the language's keywords, operators and delimiters, shared by every
+ * lexer. Recognition works on a source slice and never allocates.
+ */
+public final class Lexicon {
+    public enum Keyword {
+        AGAR("agar", "if"),
+        WARNA("warna", "else"),
+        JABTAK("jabtak", "while"),
+        BARAY("baray", "for"),
+        TABDIL("tabdil", "switch"),
+        ADAD("adad", "integer", true),
+        ASHARIA("asharia", "float", true),
+        HARF("harf", "character", true),
+        JHANDA("jhanda", "boolean", true),
+        LAFZ("lafz", "string", true),
+        LIKHO("likho", "print"),
+        LO("lo", "input"),
+        DO("do", "output"),
+        WAPIS("wapis", "return");
+
+        private final String text;
+        private final String meaning;
+        private final boolean type;
+
+        Keyword(String text, String meaning) {
+            this(text, meaning, false);
+        }
+
+        Keyword(String text, String meaning, boolean type) {
+            this.text = text;
+            this.meaning = meaning;
+            this.type = type;
+        }
+
+        public String text() {
+            return text;
+        }
+
+        public String meaning() {
+            return meaning;
+        }
+
+        /** Whether the keyword names a data type and so starts a declaration. */
+        public boolean isType() {
+            return type;
+        }
+    }
+
+    private static final Keyword[] KEYS = Keyword.values();
+    private static final Keyword[] TABLE = new Keyword[32];
+    private static final byte[] SYMBOLS = new byte[128];
+
+    static {
+        for (Keyword k : KEYS) {
+            String t = k.text;
+            int h = hash(t.charAt(0), t.charAt(t.length() - 1), t.length());
+            if (TABLE[h] != null) throw new IllegalStateException("keyword hash collision: " + t);
+            TABLE[h] = k;
+        }
+        Arrays.fill(SYMBOLS, TokenBuffer.UNKNOWN);
+        for (char c : "+-*/=%<>!".toCharArray()) SYMBOLS[c] = TokenBuffer.OPERATOR;
+        SYMBOLS[';'] = TokenBuffer.SEMICOLON;
+        SYMBOLS['('] = TokenBuffer.OPEN_BRACKET;
+        SYMBOLS[')'] = TokenBuffer.CLOSE_BRACKET;
+        SYMBOLS['{'] = TokenBuffer.OPEN_CURLY;
+        SYMBOLS['}'] = TokenBuffer.CLOSE_CURLY;
+    }
+
+    private Lexicon() {
+    }
+
+    // The shift was found by search: 3 is the only one up to 8 that gives every keyword its own slot of a 32-entry table.
+    private static int hash(char first, char last, int len) {
+        return (first + (last << 3) + len) & 31;
+    }
+
+    public static Keyword keyword(CharSequence s, int from, int len) {
+        if (len < 2 || len > 7) return null;
+        Keyword k = TABLE[hash(s.charAt(from), s.charAt(from + len - 1), len)];
+        if (k == null || k.text.length() != len) return null;
+        for (int i = 0; i < len; i++) {
+            if (k.text.charAt(i) != s.charAt(from + i)) return null;
+        }
+        return k;
+    }
+
+    public static Keyword keyword(char[] s, int from, int len) {
+        if (len < 2 || len > 7) return null;
+        Keyword k = TABLE[hash(s[from], s[from + len - 1], len)];
+        if (k == null || k.text.length() != len) return null;
+        for (int i = 0; i < len; i++) {
+            if (k.text.charAt(i) != s[from + i]) return null;
+        }
+        return k;
+    }
+
+    public static Keyword keyword(CharSequence word) {
+        return keyword(word, 0, word.length());
+    }
+
+    /** Token kind of a single-character operator or delimiter, or {@link TokenBuffer#UNKNOWN}. */
+    public static byte symbol(char c) {
+        return c < 128 ? SYMBOLS[c] : TokenBuffer.UNKNOWN;
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.demo;
+
+import java.util.*;
+
+/**
+ * Runs a Thompson NFA directly, with no DFA construction, in time linear in the input. The
+ * general engine is a Pike VM whose thread lists are sparse sets carrying each thread's start
+ * position; NFAs of at most 64 states also get a bit-parallel path that keeps the whole state set
+ * in one {@code long} and steps it with per-class lookup tables over 8-state chunks.
+ * <p>
+ * {@link #find} reports the leftmost-longest match. Instances are not thread-safe.
+ */
+public class NFAMatcher {
+    private final RegexToNFA.Dense nfa;
+    private final Threads clist, nlist;
+    private final long[] step; // bit-parallel successors, or null when the NFA has over 64 states
+    private final int chunks;
+
+    public NFAMatcher(String regex) {
+        this(RegexToNFA.Dense.of(regex));
+    }
+
+    public NFAMatcher(RegexToNFA.NFA nfa) {
+        this(RegexToNFA.Dense.of(nfa));
+    }
+
+    NFAMatcher(RegexToNFA.Dense nfa) {
+        this.nfa = nfa;
+        this.clist = new Threads(nfa.n);
+        this.nlist = new Threads(nfa.n);
+        this.chunks = (nfa.n + 7) >>> 3;
+        this.step = nfa.n <= 64 ? bitTable(nfa, chunks) : null;
+    }
+
+    // step[(c * 8 + k) * 256 + b] = closed successors on class c of the states of chunk k set in b
+    private static long[] bitTable(RegexToNFA.Dense nfa, int chunks) {
+        int classes = nfa.classes.size();
+        long[] succ = new long[classes * 64];
+        for (int s = 0; s < nfa.n; s++) {
+            for (int e = nfa.edgeStart[s]; e < nfa.edgeStart[s + 1]; e++) {
+                succ[nfa.edgeSym[e] * 64 + s] |= nfa.closure[nfa.edgeTo[e]][0];
+            }
+        }
+        long[] table = new long[classes * 8 * 256];
+        for (int c = 0; c < classes; c++) {
+            for (int k = 0; k < chunks; k++) {
+                int base = (c * 8 + k) * 256;
+                for (int b = 1; b < 256; b++) {
+                    int low = Integer.numberOfTrailingZeros(b);
+                    table[base + b] = table[base + (b & (b - 1))] | succ[c * 64 + k * 8 + low];
+                }
+            }
+        }
+        return table;
+    }
+
+    private long stepBits(long d, int c) {
+        long r = 0;
+        int base = c * 8 * 256;
+        for (int k = 0; k < chunks; k++, d >>>= 8) r |= step[base + (k << 8) + (int) (d & 0xff)];
+        return r;
+    }
+
+    /** Whether the whole of {@code s} matches. */
+    public boolean matches(CharSequence s) {
+        if (step != null) {
+            long d = nfa.closure[nfa.start][0];
+            for (int i = 0; i < s.length() && d != 0; i++) d = stepBits(d, nfa.classOf(s.charAt(i)));
+            return (d & (1L << nfa.accept)) != 0;
+        }
+        return run(s, 0, true) != null;
+    }
+
+    /** Whether some substring of {@code s} matches. */
+    public boolean contains(CharSequence s) {
+        if (step != null) {
+            long init = nfa.closure[nfa.start][0], acc = 1L << nfa.accept;
+            long d = init;
+            for (int i = 0; (d & acc) == 0; i++) {
+                if (i == s.length()) return false;
+                d = stepBits(d, nfa.classOf(s.charAt(i))) | init;
+            }
+            return true;
+        }
+        return find(s, 0) != null;
+    }
+
+    /** Leftmost-longest match at or after {@code from} as {start, end}, or null. */
+    public int[] find(CharSequence s, int from) {
+        return run(s, from, false);
+    }
+
+    private int[] run(CharSequence s, int from, boolean anchored) {
+        Threads cur = clist, nxt = nlist;
+        cur.clear();
+        int len = s.length(), bestStart = -1, bestEnd = -1;
+        for (int i = from; ; i++) {
+            // later seeds go last, so threads stay ordered by start and duplicates keep the earliest
+            if (bestStart < 0 && (!anchored || i == from)) cur.addClosure(nfa.closure[nfa.start], i);
+            for (int t = 0; t < cur.size; t++) {
+                if (cur.state[t] != nfa.accept) continue;
+                int st = cur.start[t];
+                if (bestStart < 0 || st < bestStart || st == bestStart && i > bestEnd) {
+                    bestStart = st;
+                    bestEnd = i;
+                }
+                break;
+            }
+            if (i == len || cur.size == 0 && (bestStart >= 0 || anchored)) break;
+
+            int c = nfa.classOf(s.charAt(i));
+            nxt.clear();
+            for (int t = 0; t < cur.size; t++) {
+                int u = cur.state[t], st = cur.start[t];
+                if (bestStart >= 0 && st > bestStart) break;
+                for (int e = nfa.edgeStart[u]; e < nfa.edgeStart[u + 1]; e++) {
+                    if (nfa.edgeSym[e] == c) nxt.addClosure(nfa.closure[nfa.edgeTo[e]], st);
+                }
+            }
+            Threads tmp = cur;
+            cur = nxt;
+            nxt = tmp;
+        }
+        if (anchored && bestEnd != len) return null;
+        return bestStart < 0 ? null : new int[]{bestStart, bestEnd};
+    }
+
+    /** Sparse set of NFA states, each with the input position its thread started at. */
+    static final class Threads {
+        final int[] state;
+        final int[] start;
+        final int[] index;
+        int size;
+
+        Threads(int n) {
+            state = new int[n];
+            start = new int[n];
+            index = new int[n];
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        boolean contains(int s) {
+            int i = index[s];
+            return i < size && state[i] == s;
+        }
+
+        void addClosure(long[] set, int from) {
+            for (int wi = 0; wi < set.length; wi++) {
+                for (long bits = set[wi]; bits != 0; bits &= bits - 1) {
+                    int s = (wi << 6) + Long.numberOfTrailingZeros(bits);
+                    if (contains(s)) continue;
+                    index[s] = size;
+                    state[size] = s;
+                    start[size++] = from;
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        NFAMatcher m = new NFAMatcher("(a|b)*abb");
+        System.out.println("matches aababb: " + m.matches("aababb"));
+        int[] at = m.find("xxabbaabbyy", 0);
+        System.out.println("find in xxabbaabbyy: " + (at == null ? "none" : at[0] + ".." + at[1]));
+
+        StringBuilder log = new StringBuilder();
+        Random rnd = new Random(1);
+        for (int i = 0; i < 1_000_000; i++) log.append((char) ('a' + rnd.nextInt(3)));
+        long t0 = System.nanoTime();
+        boolean hit = new NFAMatcher("abcabcabcabcc").contains(log);
+        System.out.println("contains over 1M chars: " + hit + " in " + (System.nanoTime() - t0) / 1_000_000 + " ms");
+    }
+}
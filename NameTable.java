@@ -0,0 +1,97 @@
+package com.example.demo;
+
+import java.util.*;
+
+/**
+ * Interns identifier text into one shared char arena. Each distinct name gets a dense int id,
+ * so repeated references cost an int instead of a String.
+ */
+public class NameTable {
+    private char[] arena = new char[1024];
+    private int used;
+    private int[] offs = new int[64];
+    private int[] lens = new int[64];
+    private int[] hashes = new int[64];
+    private int count;
+    private int[] slots = new int[128]; // id + 1, 0 = empty
+
+    public int intern(CharSequence s, int from, int len) {
+        int h = hash(s, from, len);
+        int mask = slots.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            int id = slots[i] - 1;
+            if (id < 0) {
+                id = add(s, from, len, h);
+                slots[i] = id + 1;
+                if (count * 2 > slots.length) rehash();
+                return id;
+            }
+            if (hashes[id] == h && equals(id, s, from, len)) return id;
+        }
+    }
+
+    public int intern(CharSequence s) {
+        return intern(s, 0, s.length());
+    }
+
+    /** Returns the id of the name, or -1 if it was never interned. */
+    public int find(CharSequence s, int from, int len) {
+        int h = hash(s, from, len);
+        int mask = slots.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            int id = slots[i] - 1;
+            if (id < 0) return -1;
+            if (hashes[id] == h && equals(id, s, from, len)) return id;
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public String name(int id) {
+        return new String(arena, offs[id], lens[id]);
+    }
+
+    private int add(CharSequence s, int from, int len, int h) {
+        if (used + len > arena.length) arena = Arrays.copyOf(arena, Math.max(arena.length * 2, used + len));
+        for (int i = 0; i < len; i++) arena[used + i] = s.charAt(from + i);
+        if (count == offs.length) {
+            int cap = count * 2;
+            offs = Arrays.copyOf(offs, cap);
+            lens = Arrays.copyOf(lens, cap);
+            hashes = Arrays.copyOf(hashes, cap);
+        }
+        offs[count] = used;
+        lens[count] = len;
+        hashes[count] = h;
+        used += len;
+        return count++;
+    }
+
+    private boolean equals(int id, CharSequence s, int from, int len) {
+        if (lens[id] != len) return false;
+        int off = offs[id];
+        for (int i = 0; i < len; i++) {
+            if (arena[off + i] != s.charAt(from + i)) return false;
+        }
+        return true;
+    }
+
+    private void rehash() {
+        int[] next = new int[slots.length * 2];
+        int mask = next.length - 1;
+        for (int id = 0; id < count; id++) {
+            int i = hashes[id] & mask;
+            while (next[i] != 0) i = (i + 1) & mask;
+            next[i] = id + 1;
+        }
+        slots = next;
+    }
+
+    private static int hash(CharSequence s, int from, int len) {
+        int h = 0;
+        for (int i = 0; i < len; i++) h = 31 * h + s.charAt(from + i);
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.demo;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static com.example.demo.SymbolTable.Lexer.*;
+
+/**
+ * Lexes large inputs in chunks on a {@link ForkJoinPool}. Chunks always end just after a newline,
+ * so the lexer can only enter a chunk in {@code NORMAL}, block-comment or string mode. A first
+ * parallel pass computes each chunk's entry-to-exit mode map, a sequential prefix over those maps
+ * fixes the real entry mode of every chunk, and a second parallel pass lexes each chunk once.
+ * The result is identical to {@link SymbolTable#scan(String)}.
+ */
+public class ParallelLexer {
+    static final int MIN_CHUNK = 256 * 1024;
+    private static final int[] ENTRIES = {NORMAL, BLOCK_CMNT, IN_STR};
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    public ParallelLexer() {
+        this(ForkJoinPool.commonPool(), 0);
+    }
+
+    /** A {@code chunkSize} of 0 picks a size from the input length and the pool's parallelism. */
+    public ParallelLexer(ForkJoinPool pool, int chunkSize) {
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    public TokenBuffer scan(String code) {
+        int len = code.length();
+        int size = chunkSize > 0 ? chunkSize : Math.max(MIN_CHUNK, len / (pool.getParallelism() * 4));
+        if (len <= size) return SymbolTable.scan(code);
+
+        List<Integer> cuts = new ArrayList<>();
+        cuts.add(0);
+        for (int at = size; at < len; ) {
+            int nl = code.indexOf('\n', at);
+            if (nl < 0 || nl == len - 1) break;
+            cuts.add(nl + 1);
+            at = nl + 1 + size;
+        }
+        cuts.add(len);
+        int n = cuts.size() - 1;
+
+        int[][] maps = new int[n][];
+        pool.invoke(ForkJoinTask.adapt(() -> forEach(n, k -> maps[k] = transfer(code, cuts.get(k), cuts.get(k + 1)))));
+
+        int[] entry = new int[n];
+        for (int k = 1; k < n; k++) entry[k] = maps[k - 1][entry[k - 1]];
+
+        TokenBuffer[] parts = new TokenBuffer[n];
+        int[] newlines = new int[n];
+        int[] openStart = new int[n], openLine = new int[n];
+        pool.invoke(ForkJoinTask.adapt(() -> forEach(n, k -> {
+            int from = cuts.get(k), to = cuts.get(k + 1);
+            TokenBuffer part = new TokenBuffer(code, (to - from) / 8 + 16);
+            SymbolTable.Lexer lx = new SymbolTable.Lexer();
+            lx.line = 0;
+            lx.mode = entry[k];
+            if (lx.mode == IN_STR) lx.tokStart = from;
+            lx.run(code, from, to, 0, to == len, part);
+            parts[k] = part;
+            newlines[k] = lx.line;
+            openStart[k] = lx.mode == IN_STR ? (int) lx.tokStart : -1;
+            openLine[k] = lx.tokLine;
+        })));
+
+        int total = 0;
+        for (TokenBuffer part : parts) total += part.size();
+        TokenBuffer toks = new TokenBuffer(code, total);
+        int line = 1, strStart = -1, strLine = 0;
+        for (int k = 0; k < n; k++) {
+            TokenBuffer part = parts[k];
+            int skip = 0;
+            if (entry[k] == IN_STR && part.size() > 0) {
+                // first token closes a literal opened in an earlier chunk
+                toks.add(part.kind(0), strStart, part.start(0) + part.length(0) - strStart, strLine);
+                skip = 1;
+            }
+            toks.append(part, skip, part.size(), 0, line);
+            if (openStart[k] >= 0 && (entry[k] != IN_STR || part.size() > 0)) {
+                strStart = openStart[k];
+                strLine = line + openLine[k];
+            }
+            line += newlines[k];
+        }
+        return toks;
+    }
+
+    private void forEach(int n, java.util.function.IntConsumer body) {
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[n];
+        for (int k = 0; k < n; k++) {
+            int idx = k;
+            tasks[k] = ForkJoinTask.adapt(() -> body.accept(idx));
+        }
+        ForkJoinTask.invokeAll(tasks);
+    }
+
+    /**
+     * Runs the comment/string mode machine of {@link SymbolTable.Lexer} over {@code [from, to)} once
+     * per possible entry mode, in lockstep, merging machines as soon as they reach the same
+     * position in the same mode. Returns the exit mode indexed by entry mode.
+     */
+    static int[] transfer(CharSequence s, int from, int to) {
+        int m = ENTRIES.length;
+        int[] mode = ENTRIES.clone(), at = new int[m], follow = new int[m];
+        for (int k = 0; k < m; k++) {
+            at[k] = from;
+            follow[k] = k;
+        }
+        int live = m;
+
+        while (live > 1) {
+            int cur = -1;
+            for (int k = 0; k < m; k++) {
+                if (follow[k] == k && at[k] < to && (cur < 0 || at[k] < at[cur])) cur = k;
+            }
+            if (cur < 0) break;
+            step(s, to, mode, at, cur);
+            for (int k = 0; k < m; k++) {
+                if (k != cur && follow[k] == k && at[k] == at[cur] && mode[k] == mode[cur]) {
+                    for (int j = 0; j < m; j++) {
+                        if (follow[j] == k) follow[j] = cur;
+                    }
+                    live--;
+                }
+            }
+        }
+        if (live == 1) {
+            int last = follow[0];
+            while (at[last] < to) step(s, to, mode, at, last);
+        }
+
+        int[] exit = new int[IN_STR + 1];
+        Arrays.fill(exit, -1);
+        for (int k = 0; k < m; k++) exit[ENTRIES[k]] = mode[follow[k]];
+        return exit;
+    }
+
+    private static void step(CharSequence s, int to, int[] mode, int[] at, int k) {
+        int i = at[k];
+        char c = s.charAt(i);
+        boolean pair = i < to - 1;
+        switch (mode[k]) {
+            case LINE_CMNT:
+                if (c == '\n') mode[k] = NORMAL;
+                break;
+            case BLOCK_CMNT:
+                if (c == '%' && pair && s.charAt(i + 1) == '-') {
+                    mode[k] = NORMAL;
+                    i++;
+                }
+                break;
+            case IN_STR:
+                if (c == '"') mode[k] = NORMAL;
+                break;
+            default:
+                if (c == '~' && pair && s.charAt(i + 1) == '~') {
+                    mode[k] = LINE_CMNT;
+                    i++;
+                } else if (c == '-' && pair && s.charAt(i + 1) == '%') {
+                    mode[k] = BLOCK_CMNT;
+                    i++;
+                } else if (c == '"') {
+                    mode[k] = IN_STR;
+                }
+        }
+        at[k] = i + 1;
+    }
+
+    public static void main(String[] args) {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 32 * 1024 * 1024) {
+            sb.append("adad x = 5; -% block\n comment %- lafz s = \"multi\nline\"; ~~ note\nlikho(s);\n");
+        }
+        String code = sb.toString();
+        long t0 = System.nanoTime();
+        TokenBuffer seq = SymbolTable.scan(code);
+        long t1 = System.nanoTime();
+        TokenBuffer par = new ParallelLexer().scan(code);
+        long t2 = System.nanoTime();
+        System.out.println("sequential: " + seq.size() + " tokens in " + (t1 - t0) / 1_000_000 + " ms");
+        System.out.println("parallel:   " + par.size() + " tokens in " + (t2 - t1) / 1_000_000 + " ms");
+    }
+}
@@ -4,12 +4,11 @@ import java.util.*;
 
 public class RegexToNFA {
     static class State {
-        static int idCounter = 0;
         int id;
         List<Transition> transitions = new ArrayList<>();
 
-        public State() {
-            this.id = idCounter++;
+        public State(int id) {
+            this.id = id;
         }
 
         public void addTransition(String symbol, State next) {
@@ -30,134 +29,305 @@ public class RegexToNFA {
     static class NFA {
         State start;
         State accept;
+        final Arena arena;
+        final State[] states; // indexed by id
 
-        public NFA(State start, State accept) {
-            this.start = start;
-            this.accept = accept;
+        NFA(Arena arena) {
+            this.arena = arena;
+            this.states = new State[arena.states];
+            for (int i = 0; i < states.length; i++) states[i] = new State(i);
+            for (int e = 0; e < arena.edges; e++) {
+                int sym = arena.sym[e];
+                states[arena.from[e]].addTransition(sym == Arena.EPS ? EPSILON : CharClasses.format(arena.sets.get(sym)), states[arena.to[e]]);
+            }
+            this.start = states[arena.start];
+            this.accept = states[arena.accept];
+        }
+    }
+
+    /**
+     * Backing store of one NFA build: states are dense ids starting at 0 and edges live in
+     * parallel int arrays. An edge symbol is the id of a char set, stored as a string of
+     * sorted, disjoint {@code lo, hi} char pairs. Every build owns its arena, so builds can run
+     * concurrently.
+     */
+    static final class Arena {
+        static final int EPS = -1;
+
+        int states;
+        int edges;
+        int[] from = new int[16];
+        int[] sym = new int[16];
+        int[] to = new int[16];
+        int start;
+        int accept;
+        final List<String> sets = new ArrayList<>();
+        private final Map<String, Integer> setIds = new HashMap<>();
+
+        int newState() {
+            return states++;
+        }
+
+        int set(String ranges) {
+            Integer id = setIds.get(ranges);
+            if (id == null) {
+                id = sets.size();
+                sets.add(ranges);
+                setIds.put(ranges, id);
+            }
+            return id;
+        }
+
+        void edge(int f, int symbol, int t) {
+            if (edges == from.length) {
+                from = Arrays.copyOf(from, edges * 2);
+                sym = Arrays.copyOf(sym, edges * 2);
+                to = Arrays.copyOf(to, edges * 2);
+            }
+            from[edges] = f;
+            sym[edges] = symbol;
+            to[edges++] = t;
         }
     }
 
     private static final String EPSILON = "ε";
 
     public static NFA convertToNFA(String regex) {
-        String postfix = toPostfix(insertConcatOperators(regex));
-        return buildNFAFromPostfix(postfix);
+        return new NFA(parse(regex));
+    }
+
+    // operator tokens; atoms are char set ids >= 0
+    private static final int LPAREN = -1, RPAREN = -2, STAR = -3, CONCAT = -4, ALT = -5;
+
+    private static Arena parse(String regex) {
+        return parse(regex, new Arena());
+    }
+
+    /** Adds the NFA of {@code regex} to {@code a} and points {@code a.start} and {@code a.accept} at it. */
+    static Arena parse(String regex, Arena a) {
+        return buildNFAFromPostfix(toPostfix(insertConcatOperators(tokenize(regex, a))), a);
     }
 
-    private static String insertConcatOperators(String regex) {
-        StringBuilder result = new StringBuilder();
+    /** Splits {@code regex} into operator and atom tokens, interning each atom's char set in {@code a}. */
+    private static int[] tokenize(String regex, Arena a) {
         int len = regex.length();
-        for (int i = 0; i < len; i++) {
-            char c = regex.charAt(i);
-            result.append(c);
-            if (i < len - 1) {
-                char next = regex.charAt(i + 1);
-                if ((isLiteral(c) || c == '*' || c == ')') && (isLiteral(next) || next == '(')) {
-                    result.append('.');
+        int[] tokens = new int[len];
+        int n = 0;
+        for (int i = 0; i < len; ) {
+            char c = regex.charAt(i++);
+            switch (c) {
+                case '(':
+                    tokens[n++] = LPAREN;
+                    break;
+                case ')':
+                    tokens[n++] = RPAREN;
+                    break;
+                case '*':
+                    tokens[n++] = STAR;
+                    break;
+                case '|':
+                    tokens[n++] = ALT;
+                    break;
+                case '.':
+                    tokens[n++] = CONCAT;
+                    break;
+                case '[': {
+                    StringBuilder ranges = new StringBuilder();
+                    i = parseClass(regex, i, ranges);
+                    tokens[n++] = a.set(ranges.toString());
+                    break;
                 }
+                case '\\': {
+                    char e = escape(regex, i++);
+                    tokens[n++] = a.set(new String(new char[]{e, e}));
+                    break;
+                }
+                default:
+                    tokens[n++] = a.set(new String(new char[]{c, c}));
             }
         }
-        return result.toString();
+        return Arrays.copyOf(tokens, n);
     }
 
-    private static boolean isLiteral(char c) {
-        return !(c == '(' || c == ')' || c == '*' || c == '|' || c == '.');
+    /** Parses a bracket expression whose '[' precedes {@code i}; returns the index after its ']'. */
+    private static int parseClass(String regex, int i, StringBuilder out) {
+        int len = regex.length(), open = i - 1;
+        boolean negate = i < len && regex.charAt(i) == '^';
+        if (negate) i++;
+        List<int[]> ranges = new ArrayList<>();
+        for (boolean first = true; ; first = false) {
+            if (i >= len) throw new IllegalArgumentException("Unterminated character class at " + open + ": " + regex);
+            char c = regex.charAt(i++);
+            if (c == ']' && !first) break;
+            int lo = c == '\\' ? escape(regex, i++) : c, hi = lo;
+            if (i + 1 < len && regex.charAt(i) == '-' && regex.charAt(i + 1) != ']') {
+                char d = regex.charAt(i + 1);
+                i += 2;
+                hi = d == '\\' ? escape(regex, i++) : d;
+                if (hi < lo) throw new IllegalArgumentException("Bad range " + (char) lo + "-" + (char) hi + " in " + regex);
+            }
+            ranges.add(new int[]{lo, hi});
+        }
+
+        ranges.sort((x, y) -> Integer.compare(x[0], y[0]));
+        List<int[]> merged = new ArrayList<>();
+        for (int[] r : ranges) {
+            int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && r[0] <= last[1] + 1) last[1] = Math.max(last[1], r[1]);
+            else merged.add(r);
+        }
+        if (negate) {
+            List<int[]> rest = new ArrayList<>();
+            int next = 0;
+            for (int[] r : merged) {
+                if (r[0] > next) rest.add(new int[]{next, r[0] - 1});
+                next = r[1] + 1;
+            }
+            if (next <= Character.MAX_VALUE) rest.add(new int[]{next, Character.MAX_VALUE});
+            merged = rest;
+        }
+        if (merged.isEmpty()) throw new IllegalArgumentException("Empty character class at " + open + ": " + regex);
+        for (int[] r : merged) out.append((char) r[0]).append((char) r[1]);
+        return i;
     }
 
-    private static String toPostfix(String regex) {
-        StringBuilder output = new StringBuilder();
-        Stack<Character> stack = new Stack<>();
-        for (char c : regex.toCharArray()) {
-            if (isLiteral(c)) {
-                output.append(c);
-            } else if (c == '(') {
-                stack.push(c);
-            } else if (c == ')') {
-                while (!stack.isEmpty() && stack.peek() != '(') {
-                    output.append(stack.pop());
+    private static char escape(String regex, int i) {
+        if (i >= regex.length()) throw new IllegalArgumentException("Dangling escape: " + regex);
+        char c = regex.charAt(i);
+        switch (c) {
+            case 'n':
+                return '\n';
+            case 't':
+                return '\t';
+            case 'r':
+                return '\r';
+            default:
+                return c;
+        }
+    }
+
+    private static int[] insertConcatOperators(int[] tokens) {
+        int[] result = new int[2 * tokens.length];
+        int n = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            int t = tokens[i];
+            result[n++] = t;
+            if (i < tokens.length - 1) {
+                int next = tokens[i + 1];
+                if ((t >= 0 || t == STAR || t == RPAREN) && (next >= 0 || next == LPAREN)) {
+                    result[n++] = CONCAT;
+                }
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static int[] toPostfix(int[] tokens) {
+        int[] output = new int[tokens.length];
+        int[] stack = new int[tokens.length];
+        int n = 0, top = 0;
+        for (int t : tokens) {
+            if (t >= 0) {
+                output[n++] = t;
+            } else if (t == LPAREN) {
+                stack[top++] = t;
+            } else if (t == RPAREN) {
+                while (top > 0 && stack[top - 1] != LPAREN) {
+                    output[n++] = stack[--top];
                 }
-                stack.pop();
+                if (top > 0) top--;
             } else {
-                while (!stack.isEmpty() && precedence(stack.peek()) >= precedence(c)) {
-                    output.append(stack.pop());
+                while (top > 0 && precedence(stack[top - 1]) >= precedence(t)) {
+                    output[n++] = stack[--top];
                 }
-                stack.push(c);
+                stack[top++] = t;
             }
         }
-        while (!stack.isEmpty()) {
-            output.append(stack.pop());
+        while (top > 0) {
+            output[n++] = stack[--top];
         }
-        return output.toString();
+        return Arrays.copyOf(output, n);
     }
 
-    private static int precedence(char c) {
-        switch (c) {
-            case '*':
+    private static int precedence(int t) {
+        switch (t) {
+            case STAR:
                 return 3;
-            case '.':
+            case CONCAT:
                 return 2;
-            case '|':
+            case ALT:
                 return 1;
             default:
                 return 0;
         }
     }
 
-    private static NFA buildNFAFromPostfix(String postfix) {
-        Stack<NFA> stack = new Stack<>();
-        for (char c : postfix.toCharArray()) {
-            if (isLiteral(c)) {
-                State start = new State();
-                State accept = new State();
-                start.addTransition(Character.toString(c), accept);
-                stack.push(new NFA(start, accept));
-            } else if (c == '*') {
-                NFA nfa = stack.pop();
-                State start = new State();
-                State accept = new State();
-                start.addTransition(EPSILON, nfa.start);
-                start.addTransition(EPSILON, accept);
-                nfa.accept.addTransition(EPSILON, nfa.start);
-                nfa.accept.addTransition(EPSILON, accept);
-                stack.push(new NFA(start, accept));
-            } else if (c == '.') {
-                NFA nfa2 = stack.pop();
-                NFA nfa1 = stack.pop();
-                nfa1.accept.addTransition(EPSILON, nfa2.start);
-                stack.push(new NFA(nfa1.start, nfa2.accept));
-            } else if (c == '|') {
-                NFA nfa2 = stack.pop();
-                NFA nfa1 = stack.pop();
-                State start = new State();
-                State accept = new State();
-                start.addTransition(EPSILON, nfa1.start);
-                start.addTransition(EPSILON, nfa2.start);
-                nfa1.accept.addTransition(EPSILON, accept);
-                nfa2.accept.addTransition(EPSILON, accept);
-                stack.push(new NFA(start, accept));
-            }
-        }
-        return stack.pop();
+    private static Arena buildNFAFromPostfix(int[] postfix, Arena a) {
+        int[] stack = new int[2 * postfix.length];
+        int top = 0;
+        for (int t : postfix) {
+            if (t >= 0) {
+                int start = a.newState();
+                int accept = a.newState();
+                a.edge(start, t, accept);
+                stack[top++] = start;
+                stack[top++] = accept;
+            } else if (t == STAR) {
+                int nfaAccept = stack[--top], nfaStart = stack[--top];
+                int start = a.newState();
+                int accept = a.newState();
+                a.edge(start, Arena.EPS, nfaStart);
+                a.edge(start, Arena.EPS, accept);
+                a.edge(nfaAccept, Arena.EPS, nfaStart);
+                a.edge(nfaAccept, Arena.EPS, accept);
+                stack[top++] = start;
+                stack[top++] = accept;
+            } else if (t == CONCAT) {
+                int accept2 = stack[--top], start2 = stack[--top];
+                int accept1 = stack[--top];
+                a.edge(accept1, Arena.EPS, start2);
+                stack[top++] = accept2;
+            } else if (t == ALT) {
+                int accept2 = stack[--top], start2 = stack[--top];
+                int accept1 = stack[--top], start1 = stack[--top];
+                int start = a.newState();
+                int accept = a.newState();
+                a.edge(start, Arena.EPS, start1);
+                a.edge(start, Arena.EPS, start2);
+                a.edge(accept1, Arena.EPS, accept);
+                a.edge(accept2, Arena.EPS, accept);
+                stack[top++] = start;
+                stack[top++] = accept;
+            }
+        }
+        a.start = stack[0];
+        a.accept = stack[1];
+        return a;
     }
 
-    public static void printNFA(NFA nfa) {
+    public static String formatNFA(NFA nfa) {
         Set<State> visited = new HashSet<>();
         Queue<State> queue = new LinkedList<>();
         queue.add(nfa.start);
         visited.add(nfa.start);
-        System.out.println("NFA State Transitions:");
+        StringBuilder sb = new StringBuilder("NFA State Transitions:\n");
         while (!queue.isEmpty()) {
             State state = queue.poll();
             for (Transition trans : state.transitions) {
-                System.out.println("State " + state.id + " --" + trans.symbol + "--> State " + trans.next.id);
+                sb.append("State ").append(state.id).append(" --").append(trans.symbol).append("--> State ").append(trans.next.id).append('\n');
                 if (!visited.contains(trans.next)) {
                     visited.add(trans.next);
                     queue.add(trans.next);
                 }
             }
         }
-        System.out.println("Start State: " + nfa.start.id);
-        System.out.println("Accept State: " + nfa.accept.id);
+        sb.append("Start State: ").append(nfa.start.id).append('\n');
+        sb.append("Accept State: ").append(nfa.accept.id).append('\n');
+        return sb.toString();
+    }
+
+    public static void printNFA(NFA nfa) {
+        System.out.print(formatNFA(nfa));
     }
     static class DFA {
         Set<State> start;
@@ -171,91 +341,598 @@ public class RegexToNFA {
         }
     }
 
-    public static DFA convertToDFA(NFA nfa) {
-        Set<State> startState = epsilonClosure(Collections.singleton(nfa.start));
-        Set<Set<State>> dfaStates = new HashSet<>();
-        Map<Set<State>, Map<String, Set<State>>> dfaTransitions = new HashMap<>();
-        Queue<Set<State>> queue = new LinkedList<>();
+    /**
+     * Matching view of an {@link Arena}: non-epsilon edges in CSR form per state and the epsilon
+     * closure of every state precomputed as a bitset.
+     */
+    static final class Dense {
+        final int n;
+        final int start;
+        final int accept;
+        final int words;
+        final CharClasses classes;
+        final int[] edgeStart;
+        final int[] edgeSym; // class index as in Table
+        final int[] edgeTo;
+        final long[][] closure;
 
-        dfaStates.add(startState);
-        queue.add(startState);
+        Dense(Arena a) {
+            n = a.states;
+            start = a.start;
+            accept = a.accept;
+            words = (n + 63) >>> 6;
 
-        while (!queue.isEmpty()) {
-            Set<State> currentDFAState = queue.poll();
-            dfaTransitions.put(currentDFAState, new HashMap<>());
-
-            Set<String> symbols = new HashSet<>();
-            for (State nfaState : currentDFAState) {
-                for (Transition trans : nfaState.transitions) {
-                    if (!trans.symbol.equals(EPSILON)) {
-                        symbols.add(trans.symbol);
-                    }
+            classes = CharClasses.of(a.sets);
+            int[][] symClasses = new int[a.sets.size()][];
+            for (int i = 0; i < symClasses.length; i++) symClasses[i] = classes.classesOf(a.sets.get(i));
+            int[] out = new int[n + 1], epsOut = new int[n + 1];
+            for (int e = 0; e < a.edges; e++) {
+                if (a.sym[e] == Arena.EPS) {
+                    epsOut[a.from[e] + 1]++;
+                } else {
+                    out[a.from[e] + 1] += symClasses[a.sym[e]].length;
                 }
             }
 
-            for (String symbol : symbols) {
-                Set<State> nextDFAState = new HashSet<>();
-                for (State nfaState : currentDFAState) {
-                    for (Transition trans : nfaState.transitions) {
-                        if (trans.symbol.equals(symbol)) {
-                            nextDFAState.add(trans.next);
+            for (int s = 0; s < n; s++) {
+                out[s + 1] += out[s];
+                epsOut[s + 1] += epsOut[s];
+            }
+            edgeStart = out.clone();
+            edgeSym = new int[out[n]];
+            edgeTo = new int[out[n]];
+            int[] eps = new int[epsOut[n]];
+            for (int e = 0; e < a.edges; e++) {
+                int f = a.from[e];
+                if (a.sym[e] == Arena.EPS) {
+                    eps[epsOut[f]++] = a.to[e];
+                } else {
+                    for (int c : symClasses[a.sym[e]]) {
+                        edgeSym[out[f]] = c;
+                        edgeTo[out[f]++] = a.to[e];
+                    }
+                }
+            }
+            // epsOut[s] now holds the end of state s's epsilon edges; the start is the previous end
+            closure = new long[n][];
+            int[] stack = new int[n];
+            for (int s = 0; s < n; s++) {
+                long[] set = new long[words];
+                int top = 0;
+                set[s >>> 6] |= 1L << s;
+                stack[top++] = s;
+                while (top > 0) {
+                    int u = stack[--top];
+                    for (int j = u == 0 ? 0 : epsOut[u - 1]; j < epsOut[u]; j++) {
+                        int v = eps[j];
+                        if ((set[v >>> 6] & (1L << v)) == 0) {
+                            set[v >>> 6] |= 1L << v;
+                            stack[top++] = v;
                         }
                     }
                 }
+                closure[s] = set;
+            }
+        }
 
-                Set<State> nextDFAStateEpsilonClosure = epsilonClosure(nextDFAState);
-                dfaTransitions.get(currentDFAState).put(symbol, nextDFAStateEpsilonClosure);
+        int classOf(char c) {
+            return classes.classOf(c);
+        }
 
-                if (!dfaStates.contains(nextDFAStateEpsilonClosure)) {
-                    dfaStates.add(nextDFAStateEpsilonClosure);
-                    queue.add(nextDFAStateEpsilonClosure);
+        /** Sets {@code out} to the closed successor set of {@code set} on class {@code c}; returns false if empty. */
+        boolean step(long[] set, int c, long[] out) {
+            Arrays.fill(out, 0);
+            boolean any = false;
+            for (int wi = 0; wi < words; wi++) {
+                for (long bits = set[wi]; bits != 0; bits &= bits - 1) {
+                    int s = (wi << 6) + Long.numberOfTrailingZeros(bits);
+                    for (int e = edgeStart[s]; e < edgeStart[s + 1]; e++) {
+                        if (edgeSym[e] != c) continue;
+                        long[] from = closure[edgeTo[e]];
+                        for (int j = 0; j < words; j++) out[j] |= from[j];
+                        any = true;
+                    }
                 }
             }
+            return any;
         }
 
-        Set<Set<State>> acceptStates = new HashSet<>();
-        for (Set<State> dfaState : dfaStates) {
-            for (State nfaState : dfaState) {
-                if (nfaState == nfa.accept) {
-                    acceptStates.add(dfaState);
-                    break;
+        boolean accepts(long[] set) {
+            return accept >= 0 && (set[accept >>> 6] & (1L << accept)) != 0;
+        }
+
+        static Dense of(NFA nfa) {
+            return new Dense(nfa.arena);
+        }
+
+        static Dense of(String regex) {
+            return new Dense(parse(regex));
+        }
+    }
+
+    /**
+     * Partition of the chars into equivalence classes: two chars share a class when every char set
+     * of the NFA holds both or neither, so a DFA needs one column per class instead of one per char.
+     * Class 0 holds the chars no set mentions.
+     */
+    static final class CharClasses {
+        final char[] lo;  // interval starts, ascending, lo[0] == 0
+        final int[] cls;  // class of each interval
+        private final int count;
+        private final int[] ascii = new int[128];
+
+        CharClasses(char[] lo, int[] cls, int count) {
+            this.lo = lo;
+            this.cls = cls;
+            this.count = count;
+            for (int j = 0; j < lo.length && lo[j] < 128; j++) {
+                int end = j + 1 < lo.length ? Math.min(lo[j + 1], 128) : 128;
+                Arrays.fill(ascii, lo[j], end, cls[j]);
+            }
+        }
+
+        /** Builds the coarsest partition that keeps every set in {@code sets} a union of classes. */
+        static CharClasses of(List<String> sets) {
+            TreeSet<Integer> cuts = new TreeSet<>();
+            cuts.add(0);
+            for (String r : sets) {
+                for (int i = 0; i < r.length(); i += 2) {
+                    cuts.add((int) r.charAt(i));
+                    if (r.charAt(i + 1) < Character.MAX_VALUE) cuts.add(r.charAt(i + 1) + 1);
+                }
+            }
+            int m = cuts.size(), j = 0;
+            int[] at = new int[m];
+            for (int c : cuts) at[j++] = c;
+
+            BitSet[] sig = new BitSet[m];
+            for (j = 0; j < m; j++) sig[j] = new BitSet();
+            for (int s = 0; s < sets.size(); s++) {
+                String r = sets.get(s);
+                for (int i = 0; i < r.length(); i += 2) {
+                    for (j = Arrays.binarySearch(at, r.charAt(i)); j < m && at[j] <= r.charAt(i + 1); j++) sig[j].set(s);
+                }
+            }
+
+            // classes are numbered by their lowest char, so literal alphabets keep char order
+            Map<BitSet, Integer> ids = new HashMap<>();
+            char[] lo = new char[m];
+            int[] cls = new int[m];
+            int n = 0, count = 1;
+            for (j = 0; j < m; j++) {
+                int c = 0;
+                if (!sig[j].isEmpty()) {
+                    Integer id = ids.get(sig[j]);
+                    if (id == null) ids.put(sig[j], id = count++);
+                    c = id;
+                }
+                if (n > 0 && cls[n - 1] == c) continue;
+                lo[n] = (char) at[j];
+                cls[n++] = c;
+            }
+            return new CharClasses(Arrays.copyOf(lo, n), Arrays.copyOf(cls, n), count);
+        }
+
+        int size() {
+            return count;
+        }
+
+        int classOf(char c) {
+            if (c < 128) return ascii[c];
+            int i = Arrays.binarySearch(lo, c);
+            return cls[i < 0 ? -i - 2 : i];
+        }
+
+        /** Classes making up {@code set}, which must be one of the sets this partition was built from. */
+        int[] classesOf(String set) {
+            BitSet seen = new BitSet(count);
+            for (int i = 0; i < set.length(); i += 2) {
+                int j = Arrays.binarySearch(lo, set.charAt(i));
+                if (j < 0) j = -j - 2;
+                for (; j < lo.length && lo[j] <= set.charAt(i + 1); j++) seen.set(cls[j]);
+            }
+            return seen.stream().toArray();
+        }
+
+        /** The chars of class {@code c} in regex syntax. */
+        String label(int c) {
+            StringBuilder ranges = new StringBuilder();
+            for (int j = 0; j < lo.length; j++) {
+                if (cls[j] != c) continue;
+                char end = j + 1 < lo.length ? (char) (lo[j + 1] - 1) : Character.MAX_VALUE;
+                ranges.append(lo[j]).append(end);
+            }
+            return format(ranges.toString());
+        }
+
+        static String format(String ranges) {
+            if (ranges.length() == 2 && ranges.charAt(0) == ranges.charAt(1)) return escape(ranges.charAt(0), "\\[]()*|.");
+            int size = 0;
+            for (int i = 0; i < ranges.length(); i += 2) size += ranges.charAt(i + 1) - ranges.charAt(i) + 1;
+            StringBuilder sb = new StringBuilder("[");
+            if (size > Character.MAX_VALUE / 2) {
+                sb.append('^');
+                int next = 0;
+                for (int i = 0; i < ranges.length(); i += 2) {
+                    if (ranges.charAt(i) > next) appendRange(sb, (char) next, (char) (ranges.charAt(i) - 1));
+                    next = ranges.charAt(i + 1) + 1;
                 }
+                if (next <= Character.MAX_VALUE) appendRange(sb, (char) next, Character.MAX_VALUE);
+            } else {
+                for (int i = 0; i < ranges.length(); i += 2) appendRange(sb, ranges.charAt(i), ranges.charAt(i + 1));
             }
+            return sb.append(']').toString();
+        }
+
+        private static void appendRange(StringBuilder sb, char from, char to) {
+            sb.append(escape(from, "\\[]^-"));
+            if (to > from + 1) sb.append('-');
+            if (to > from) sb.append(escape(to, "\\[]^-"));
         }
 
-        return new DFA(startState, acceptStates, dfaTransitions);
+        private static String escape(char c, String special) {
+            switch (c) {
+                case '\n':
+                    return "\\n";
+                case '\t':
+                    return "\\t";
+                case '\r':
+                    return "\\r";
+                default:
+                    return special.indexOf(c) >= 0 ? "\\" + c : Character.toString(c);
+            }
+        }
     }
-    private static void logConversion(String regex) {
-        System.out.println("Converting regex: " + regex);
+
+    /** Bitset wrapper used to deduplicate DFA states by content. */
+    static final class BitKey {
+        final long[] bits;
+        private final int hash;
+
+        BitKey(long[] bits) {
+            this.bits = bits;
+            this.hash = Arrays.hashCode(bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof BitKey && Arrays.equals(bits, ((BitKey) o).bits);
+        }
     }
-    private static Set<State> epsilonClosure(Set<State> states) {
-        Set<State> closure = new HashSet<>(states);
-        Queue<State> queue = new LinkedList<>(states);
 
-        while (!queue.isEmpty()) {
-            State currentState = queue.poll();
-            for (Transition trans : currentState.transitions) {
-                if (trans.symbol.equals(EPSILON) && !closure.contains(trans.next)) {
-                    closure.add(trans.next);
-                    queue.add(trans.next);
+    /** Subset construction over a {@link Dense} NFA: state {@code i} of the result is {@code sets.get(i)}. */
+    static final class Subsets {
+        final List<long[]> sets = new ArrayList<>();
+        final int classes;
+        int[] delta;
+        long unions; // closures merged into successor sets
+
+        Subsets(Dense d) {
+            classes = d.classes.size();
+            int w = d.words;
+            Map<BitKey, Integer> ids = new HashMap<>();
+            long[][] acc = new long[classes][w];
+            boolean[] hit = new boolean[classes];
+            delta = new int[16 * classes];
+
+            sets.add(d.closure[d.start]);
+            ids.put(new BitKey(d.closure[d.start]), 0);
+            for (int i = 0; i < sets.size(); i++) {
+                long[] cur = sets.get(i);
+                for (int wi = 0; wi < w; wi++) {
+                    for (long bits = cur[wi]; bits != 0; bits &= bits - 1) {
+                        int s = (wi << 6) + Long.numberOfTrailingZeros(bits);
+                        for (int e = d.edgeStart[s]; e < d.edgeStart[s + 1]; e++) {
+                            long[] into = acc[d.edgeSym[e]], from = d.closure[d.edgeTo[e]];
+                            for (int j = 0; j < w; j++) into[j] |= from[j];
+                            hit[d.edgeSym[e]] = true;
+                        }
+                        unions += d.edgeStart[s + 1] - d.edgeStart[s];
+                    }
+                }
+                if ((i + 1) * classes > delta.length) delta = Arrays.copyOf(delta, delta.length * 2);
+                Arrays.fill(delta, i * classes, (i + 1) * classes, -1);
+                for (int c = 0; c < classes; c++) {
+                    if (!hit[c]) continue;
+                    hit[c] = false;
+                    BitKey key = new BitKey(acc[c]);
+                    Integer id = ids.get(key);
+                    if (id == null) {
+                        id = sets.size();
+                        ids.put(key, id);
+                        sets.add(acc[c]);
+                        acc[c] = new long[w];
+                    } else {
+                        Arrays.fill(acc[c], 0);
+                    }
+                    delta[i * classes + c] = id;
                 }
             }
         }
-        return closure;
+
+        int size() {
+            return sets.size();
+        }
+
+        boolean contains(int set, int state) {
+            return state >= 0 && (sets.get(set)[state >>> 6] & (1L << state)) != 0;
+        }
     }
 
-    public static void printDFA(DFA dfa) {
-        System.out.println("DFA State Transitions:");
+    public static DFA convertToDFA(NFA nfa) {
+        Telemetry.ConvertToDFA ev = Telemetry.ConvertToDFA.start();
+        Dense d = Dense.of(nfa);
+        Subsets sub = new Subsets(d);
+        List<Set<State>> dfaStates = new ArrayList<>(sub.size());
+        for (long[] bits : sub.sets) {
+            Set<State> set = new HashSet<>();
+            for (int wi = 0; wi < bits.length; wi++) {
+                for (long b = bits[wi]; b != 0; b &= b - 1) set.add(nfa.states[(wi << 6) + Long.numberOfTrailingZeros(b)]);
+            }
+            dfaStates.add(set);
+        }
+
+        Map<Set<State>, Map<String, Set<State>>> dfaTransitions = new HashMap<>();
+        Set<Set<State>> acceptStates = new HashSet<>();
+        for (int i = 0; i < sub.size(); i++) {
+            Map<String, Set<State>> row = new HashMap<>();
+            for (int c = 1; c < sub.classes; c++) {
+                int t = sub.delta[i * sub.classes + c];
+                if (t >= 0) row.put(d.classes.label(c), dfaStates.get(t));
+            }
+            dfaTransitions.put(dfaStates.get(i), row);
+            if (sub.contains(i, d.accept)) acceptStates.add(dfaStates.get(i));
+        }
+        ev.done(d.n, sub.size(), d.n + sub.unions);
+        return new DFA(dfaStates.get(0), acceptStates, dfaTransitions);
+    }
+
+    /** Compiles straight to the minimal table without materializing {@code Set<State>} DFA states. */
+    public static Table compile(NFA nfa) {
+        Dense d = Dense.of(nfa);
+        Subsets sub = new Subsets(d);
+        int[] label = new int[sub.size()];
+        for (int i = 0; i < label.length; i++) label[i] = sub.contains(i, d.accept) ? 1 : 0;
+        return minimize(sub.size(), sub.classes, sub.delta, label, 0, d.classes);
+    }
+    private static void logConversion(String regex) {
+        System.out.println("Converting regex: " + regex);
+    }
+
+    public static String formatDFA(DFA dfa) {
+        StringBuilder sb = new StringBuilder("DFA State Transitions:\n");
         for (Map.Entry<Set<State>, Map<String, Set<State>>> entry : dfa.transitions.entrySet()) {
-            Set<State> fromState = entry.getKey();
+            String fromState = stateSetToString(entry.getKey());
             for (Map.Entry<String, Set<State>> transEntry : entry.getValue().entrySet()) {
-                String symbol = transEntry.getKey();
-                Set<State> toState = transEntry.getValue();
-                System.out.println("State " + stateSetToString(fromState) + " --" + symbol + "--> State " + stateSetToString(toState));
+                sb.append("State ").append(fromState).append(" --").append(transEntry.getKey())
+                        .append("--> State ").append(stateSetToString(transEntry.getValue())).append('\n');
+            }
+        }
+        sb.append("Start State: ").append(stateSetToString(dfa.start)).append('\n');
+        sb.append("Accept States: ").append(dfa.acceptStates.stream().map(RegexToNFA::stateSetToString).toList()).append('\n');
+        return sb.toString();
+    }
+
+    public static void printDFA(DFA dfa) {
+        System.out.print(formatDFA(dfa));
+    }
+
+    /**
+     * Minimal DFA as a flat {@code states x classes} transition table over the equivalence classes
+     * of {@code chars}; class 0 stands for every character no edge mentions.
+     */
+    static class Table {
+        final int states;
+        final int classes;
+        final int start;
+        final int[] next; // -1 = no transition
+        final BitSet accept;
+        final int[] label; // initial partition label per state, 0 = rejecting
+        final CharClasses chars;
+
+        Table(int states, int start, int[] next, int[] label, CharClasses chars) {
+            this.states = states;
+            this.classes = chars.size();
+            this.start = start;
+            this.next = next;
+            this.label = label;
+            this.accept = new BitSet(states);
+            for (int s = 0; s < states; s++) {
+                if (label[s] != 0) accept.set(s);
+            }
+            this.chars = chars;
+        }
+
+        int classOf(char c) {
+            return chars.classOf(c);
+        }
+
+        boolean matches(CharSequence s) {
+            int st = start;
+            for (int i = 0; i < s.length() && st >= 0; i++) st = next[st * classes + classOf(s.charAt(i))];
+            return st >= 0 && accept.get(st);
+        }
+    }
+
+    public static Table minimize(DFA dfa) {
+        Map<Set<State>, Integer> ids = new HashMap<>();
+        List<Set<State>> order = new ArrayList<>();
+        ids.put(dfa.start, 0);
+        order.add(dfa.start);
+        Map<String, Integer> symbols = new LinkedHashMap<>();
+        for (int i = 0; i < order.size(); i++) {
+            for (Map.Entry<String, Set<State>> e : dfa.transitions.getOrDefault(order.get(i), Map.of()).entrySet()) {
+                symbols.putIfAbsent(e.getKey(), symbols.size());
+                if (!ids.containsKey(e.getValue())) {
+                    ids.put(e.getValue(), order.size());
+                    order.add(e.getValue());
+                }
+            }
+        }
+
+        // symbols are class labels in regex syntax; parse them back into char sets
+        Arena sets = new Arena();
+        for (Map.Entry<String, Integer> e : symbols.entrySet()) e.setValue(tokenize(e.getKey(), sets)[0]);
+        CharClasses chars = CharClasses.of(sets.sets);
+        for (Map.Entry<String, Integer> e : symbols.entrySet()) e.setValue(chars.classOf(sets.sets.get(e.getValue()).charAt(0)));
+        int n = order.size(), k = chars.size();
+        int[] delta = new int[n * k];
+        int[] label = new int[n];
+        Arrays.fill(delta, -1);
+        for (int s = 0; s < n; s++) {
+            Set<State> st = order.get(s);
+            for (Map.Entry<String, Set<State>> e : dfa.transitions.getOrDefault(st, Map.of()).entrySet()) {
+                delta[s * k + symbols.get(e.getKey())] = ids.get(e.getValue());
             }
+            if (dfa.acceptStates.contains(st)) label[s] = 1;
+        }
+        return minimize(n, k, delta, label, 0, chars);
+    }
+
+    /**
+     * Hopcroft partition refinement. {@code delta} is a partial {@code n x k} table (-1 = reject)
+     * and {@code label} the initial partition, 0 meaning non-accepting. States equivalent to the
+     * implicit dead state disappear from the result.
+     */
+    static Table minimize(int n, int k, int[] delta, int[] label, int start, CharClasses chars) {
+        int m = n + 1, dead = n;
+        // inverse transitions per class, CSR over targets
+        int[] invStart = new int[k * (m + 1) + 1];
+        for (int s = 0; s < m; s++) {
+            for (int c = 0; c < k; c++) invStart[c * (m + 1) + target(delta, s, c, k, dead) + 1]++;
+        }
+        for (int i = 1; i < invStart.length; i++) invStart[i] += invStart[i - 1];
+        int[] inv = new int[m * k], fill = invStart.clone();
+        for (int s = 0; s < m; s++) {
+            for (int c = 0; c < k; c++) inv[fill[c * (m + 1) + target(delta, s, c, k, dead)]++] = s;
+        }
+
+        int[] elems = new int[m], loc = new int[m], blk = new int[m];
+        int[] bStart = new int[m], bEnd = new int[m], marked = new int[m];
+        Map<Integer, Integer> first = new HashMap<>();
+        int nb = 0;
+        for (int s = 0; s < m; s++) {
+            int l = s == dead ? 0 : label[s];
+            Integer b = first.get(l);
+            if (b == null) first.put(l, b = nb++);
+            blk[s] = b;
+        }
+        int[] cnt = new int[nb + 1];
+        for (int s = 0; s < m; s++) cnt[blk[s] + 1]++;
+        for (int b = 0; b < nb; b++) {
+            cnt[b + 1] += cnt[b];
+            bStart[b] = cnt[b];
+            bEnd[b] = cnt[b + 1];
         }
-        System.out.println("Start State: " + stateSetToString(dfa.start));
-        System.out.println("Accept States: " + dfa.acceptStates.stream().map(RegexToNFA::stateSetToString).toList());
+        int[] pos = bStart.clone();
+        for (int s = 0; s < m; s++) {
+            loc[s] = pos[blk[s]]++;
+            elems[loc[s]] = s;
+        }
+
+        ArrayDeque<Integer> work = new ArrayDeque<>();
+        boolean[] inWork = new boolean[m];
+        for (int b = 0; b < nb; b++) {
+            work.add(b);
+            inWork[b] = true;
+        }
+        int[] splitter = new int[m], touched = new int[m];
+        while (!work.isEmpty()) {
+            int b = work.poll();
+            inWork[b] = false;
+            int size = bEnd[b] - bStart[b];
+            System.arraycopy(elems, bStart[b], splitter, 0, size);
+            for (int c = 0; c < k; c++) {
+                int nt = 0;
+                for (int i = 0; i < size; i++) {
+                    int t = splitter[i], base = c * (m + 1) + t;
+                    for (int j = invStart[base]; j < invStart[base + 1]; j++) {
+                        int p = inv[j], y = blk[p];
+                        if (loc[p] < bStart[y] + marked[y]) continue;
+                        if (marked[y] == 0) touched[nt++] = y;
+                        int q = elems[bStart[y] + marked[y]];
+                        elems[loc[p]] = q;
+                        loc[q] = loc[p];
+                        elems[bStart[y] + marked[y]] = p;
+                        loc[p] = bStart[y] + marked[y]++;
+                    }
+                }
+                for (int i = 0; i < nt; i++) {
+                    int y = touched[i], mk = marked[y];
+                    marked[y] = 0;
+                    if (mk == bEnd[y] - bStart[y]) continue;
+                    int z = nb++;
+                    bStart[z] = bStart[y];
+                    bEnd[z] = bStart[y] + mk;
+                    bStart[y] = bEnd[z];
+                    for (int j = bStart[z]; j < bEnd[z]; j++) blk[elems[j]] = z;
+                    if (inWork[y] || mk <= bEnd[y] - bStart[y]) {
+                        work.add(z);
+                        inWork[z] = true;
+                    } else {
+                        work.add(y);
+                        inWork[y] = true;
+                    }
+                }
+            }
+        }
+
+        // number the surviving blocks in breadth-first order from the start state
+        int[] id = new int[nb];
+        Arrays.fill(id, -1);
+        int[] rep = new int[nb];
+        int states = 0;
+        int deadBlk = blk[dead];
+        id[blk[start]] = states;
+        rep[states++] = start;
+        for (int i = 0; i < states; i++) {
+            for (int c = 0; c < k; c++) {
+                int t = blk[target(delta, rep[i], c, k, dead)];
+                if (t != deadBlk && id[t] < 0) {
+                    id[t] = states;
+                    rep[states++] = elems[bStart[t]];
+                }
+            }
+        }
+        int[] next = new int[states * k];
+        int[] labels = new int[states];
+        for (int i = 0; i < states; i++) {
+            for (int c = 0; c < k; c++) {
+                int t = blk[target(delta, rep[i], c, k, dead)];
+                next[i * k + c] = t == deadBlk ? -1 : id[t];
+            }
+            labels[i] = label[rep[i]];
+        }
+        return new Table(states, 0, next, labels, chars);
+    }
+
+    private static int target(int[] delta, int s, int c, int k, int dead) {
+        if (s == dead) return dead;
+        int t = delta[s * k + c];
+        return t < 0 ? dead : t;
+    }
+
+    public static String formatTable(Table table) {
+        StringBuilder sb = new StringBuilder("Minimal DFA: ").append(table.states).append(" states x ")
+                .append(table.classes).append(" classes\n");
+        for (int s = 0; s < table.states; s++) {
+            for (int c = 1; c < table.classes; c++) {
+                int t = table.next[s * table.classes + c];
+                if (t >= 0) sb.append("State ").append(s).append(" --").append(table.chars.label(c)).append("--> State ").append(t).append('\n');
+            }
+        }
+        sb.append("Start State: ").append(table.start).append('\n');
+        sb.append("Accept States: ").append(table.accept).append('\n');
+        return sb.toString();
+    }
+
+    public static void printTable(Table table) {
+        System.out.print(formatTable(table));
     }
 
     private static Set<State> getAllStates(NFA nfa) {
@@ -287,5 +964,7 @@ public class RegexToNFA {
         DFA dfa = convertToDFA(nfa);
         System.out.println("\nDFA:");
         printDFA(dfa);
+        System.out.println();
+        printTable(minimize(dfa));
     }
 }
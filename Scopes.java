@@ -0,0 +1,132 @@
+package com.example.demo;
+
+import java.util.*;
+
+/**
+ * Block-scoped symbol table over {@link NameTable} ids. Symbols are kept in parallel arrays and
+ * are never removed; popping a scope only restores the bindings its declarations shadowed.
+ * Interned ids are dense, so the binding table is indexed by id directly and lookups need no
+ * hashing at all.
+ */
+public class Scopes {
+    private final NameTable names;
+
+    private int[] symName = new int[64];
+    private byte[] symType = new byte[64];
+    private int[] symDepth = new int[64];
+    private int[] symLine = new int[64];
+    private int[] symShadow = new int[64];
+    private int symCnt;
+
+    private int[] binding = new int[64]; // innermost visible symbol + 1 per name id, 0 = unbound
+    private int[] live = new int[64];    // symbols of the open scopes, innermost last
+    private int liveCnt;
+    private int[] marks = new int[16];
+    private int depth;
+
+    private int[] missName = new int[16];
+    private int[] missLine = new int[16];
+    private int missCnt;
+
+    public Scopes(NameTable names) {
+        this.names = names;
+    }
+
+    public void push() {
+        if (depth == marks.length) marks = Arrays.copyOf(marks, depth * 2);
+        marks[depth++] = liveCnt;
+    }
+
+    public void pop() {
+        if (depth == 0) return;
+        int mark = marks[--depth];
+        while (liveCnt > mark) {
+            int sym = live[--liveCnt];
+            binding[symName[sym]] = symShadow[sym] + 1;
+        }
+    }
+
+    /** Declares {@code name} in the current scope; returns the symbol, or -1 if the scope already has it. */
+    public int declare(int name, byte type, int line) {
+        int prev = lookup(name);
+        if (prev >= 0 && symDepth[prev] == depth) return -1;
+        if (symCnt == symName.length) {
+            int cap = symCnt * 2;
+            symName = Arrays.copyOf(symName, cap);
+            symType = Arrays.copyOf(symType, cap);
+            symDepth = Arrays.copyOf(symDepth, cap);
+            symLine = Arrays.copyOf(symLine, cap);
+            symShadow = Arrays.copyOf(symShadow, cap);
+        }
+        int sym = symCnt++;
+        symName[sym] = name;
+        symType[sym] = type;
+        symDepth[sym] = depth;
+        symLine[sym] = line;
+        symShadow[sym] = prev;
+
+        if (name >= binding.length) binding = Arrays.copyOf(binding, Math.max(binding.length * 2, name + 1));
+        binding[name] = sym + 1;
+        if (liveCnt == live.length) live = Arrays.copyOf(live, liveCnt * 2);
+        live[liveCnt++] = sym;
+        return sym;
+    }
+
+    public int lookup(int name) {
+        return name < binding.length ? binding[name] - 1 : -1;
+    }
+
+    /** Resolves a use of {@code name}, remembering it when no declaration is visible. */
+    public int reference(int name, int line) {
+        int sym = lookup(name);
+        if (sym < 0) {
+            if (missCnt == missName.length) {
+                missName = Arrays.copyOf(missName, missCnt * 2);
+                missLine = Arrays.copyOf(missLine, missCnt * 2);
+            }
+            missName[missCnt] = name;
+            missLine[missCnt++] = line;
+        }
+        return sym;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public int size() {
+        return symCnt;
+    }
+
+    public NameTable names() {
+        return names;
+    }
+
+    public int name(int sym) {
+        return symName[sym];
+    }
+
+    public byte type(int sym) {
+        return symType[sym];
+    }
+
+    public int depth(int sym) {
+        return symDepth[sym];
+    }
+
+    public int line(int sym) {
+        return symLine[sym];
+    }
+
+    public int missCount() {
+        return missCnt;
+    }
+
+    public int missName(int i) {
+        return missName[i];
+    }
+
+    public int missLine(int i) {
+        return missLine[i];
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.demo;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+
+/**
+ * Lexes input of any size through a fixed-size sliding window, emitting tokens to a
+ * {@link TokenSink} as they complete. Only the pending token is carried across refills, so
+ * the window grows past its initial size only for a single lexeme longer than the window.
+ */
+public class StreamLexer {
+    public static final int DEFAULT_WINDOW = 64 * 1024;
+    private static final long MAP_CHUNK = 64L * 1024 * 1024;
+
+    private final int window;
+
+    public StreamLexer() {
+        this(DEFAULT_WINDOW);
+    }
+
+    public StreamLexer(int window) {
+        if (window < 2) throw new IllegalArgumentException("window must hold at least 2 chars");
+        this.window = window;
+    }
+
+    public void lex(Reader in, TokenSink out) throws IOException {
+        char[] buf = new char[window];
+        CharBuffer win = CharBuffer.wrap(buf);
+        SymbolTable.Lexer lx = new SymbolTable.Lexer();
+        int pos = 0, lim = 0;
+        long base = 0;
+
+        while (true) {
+            int n = in.read(buf, lim, buf.length - lim);
+            boolean eof = n < 0;
+            if (!eof) lim += n;
+            pos = lx.run(win, pos, lim, base, eof, out);
+            if (eof) return;
+
+            int keep = lx.tokStart >= 0 ? (int) (lx.tokStart - base) : pos;
+            if (keep == 0 && lim == buf.length) {
+                buf = java.util.Arrays.copyOf(buf, buf.length * 2);
+                win = CharBuffer.wrap(buf);
+                continue;
+            }
+            System.arraycopy(buf, keep, buf, 0, lim - keep);
+            lim -= keep;
+            pos -= keep;
+            base += keep;
+        }
+    }
+
+    public void lex(ReadableByteChannel ch, TokenSink out) throws IOException {
+        lex(Channels.newReader(ch, StandardCharsets.UTF_8.newDecoder(), window), out);
+    }
+
+    public void lex(FileChannel fc, long pos, long size, TokenSink out) throws IOException {
+        lex(new MappedReader(fc, pos, size), out);
+    }
+
+    public void lex(Path file, TokenSink out) throws IOException {
+        try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+            lex(fc, 0, fc.size(), out);
+        }
+    }
+
+    /** Decodes a file region by mapping it in bounded slices, so no slice exceeds {@link #MAP_CHUNK}. */
+    private static final class MappedReader extends Reader {
+        private final FileChannel fc;
+        private final long end;
+        private final CharsetDecoder dec = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private long next;
+        private ByteBuffer map = ByteBuffer.allocate(0);
+        private boolean flushed;
+
+        MappedReader(FileChannel fc, long pos, long size) {
+            this.fc = fc;
+            this.next = pos;
+            this.end = pos + size;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            CharBuffer dst = CharBuffer.wrap(cbuf, off, len);
+            while (dst.position() == off) {
+                if (flushed) return -1;
+                boolean last = next >= end;
+                CoderResult cr = dec.decode(map, dst, last);
+                if (cr.isError()) cr.throwException();
+                if (dst.position() > off || cr.isOverflow()) break;
+                if (last) {
+                    dec.flush(dst);
+                    flushed = true;
+                    continue;
+                }
+                remap();
+            }
+            return dst.position() - off;
+        }
+
+        private void remap() throws IOException {
+            // re-map the tail of a multi-byte sequence split across slices
+            long from = next - map.remaining();
+            long size = Math.min(MAP_CHUNK, end - next);
+            map = fc.map(FileChannel.MapMode.READ_ONLY, from, next + size - from);
+            next += size;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        StreamLexer lexer = new StreamLexer();
+        TokenSink printer = TokenWriter.text(TokenWriter.stdout());
+        if (args.length > 0) {
+            lexer.lex(Paths.get(args[0]), printer);
+        } else {
+            lexer.lex(Channels.newChannel(System.in), printer);
+        }
+    }
+}
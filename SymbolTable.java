@@ -2,141 +2,246 @@ package com.example.demo;
 
 import java.util.*;
 class SymbolTable {
-    private static final Map<String, String> keys = new HashMap<>();
-    private static final char[] ops = {'+', '-', '*', '/', '=', '%'};
-    private static final Map<Character, String> delims = new HashMap<>();
-
-    static {
-        keys.put("agar", "if");
-        keys.put("warna", "else");
-        keys.put("jabtak", "while");
-        keys.put("baray", "for");
-        keys.put("tabdil", "switch");
-
-        keys.put("adad", "integer");
-        keys.put("asharia", "float");
-        keys.put("harf", "character");
-        keys.put("jhanda", "boolean");
-        keys.put("lafz", "string");
-
-        keys.put("likho", "print");
-        keys.put("lo", "input");
-        keys.put("do", "output");
-        keys.put("wapis", "return");
-
-        delims.put(';', "semi colon");
-        delims.put('(', "open bracket");
-        delims.put(')', "close bracket");
-        delims.put('{', "open curly bracket");
-        delims.put('}', "close curly bracket");
-    }
-
-    private static boolean isKey(String word) {
-        return keys.containsKey(word);
-    }
-
-    private static boolean isOp(char c) {
-        for (char op : ops) {
-            if (c == op) return true;
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isID(CharSequence s, int from, int len) {
+        char first = s.charAt(from);
+        if (first < 'a' || first > 'z') return false;
+        for (int i = from + 1; i < from + len; i++) {
+            char c = s.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || isDigit(c))) return false;
         }
-        return false;
+        return true;
     }
 
-    private static boolean isDelim(char c) {
-        return delims.containsKey(c);
+    private static int digits(CharSequence s, int from, int end) {
+        int i = from;
+        while (i < end && isDigit(s.charAt(i))) i++;
+        return i - from;
     }
 
-    private static boolean isID(String word) {
-        return word.matches("[a-z][a-z0-9]*");
+    private static boolean isInt(CharSequence s, int from, int len) {
+        return digits(s, from, from + len) == len;
     }
 
-    private static boolean isInt(String word) {
-        return word.matches("\\d+");
+    private static boolean isFloat(CharSequence s, int from, int len) {
+        int end = from + len, n = digits(s, from, end);
+        if (n == 0 || from + n >= end || s.charAt(from + n) != '.') return false;
+        int m = digits(s, from + n + 1, end);
+        return m > 0 && n + 1 + m == len;
     }
 
-    private static boolean isFloat(String word) {
-        return word.matches("\\d+\\.\\d+");
+    private static boolean isStr(CharSequence s, int from, int len) {
+        return s.charAt(from) == '"' && s.charAt(from + len - 1) == '"';
     }
 
-    private static boolean isStr(String word) {
-        return word.startsWith("\"") && word.endsWith("\"");
+    static byte classify(CharSequence s, int from, int len) {
+        if (Lexicon.keyword(s, from, len) != null) return TokenBuffer.KEYWORD;
+        if (isInt(s, from, len)) return TokenBuffer.INTEGER;
+        if (isFloat(s, from, len)) return TokenBuffer.FLOAT;
+        if (isStr(s, from, len)) return TokenBuffer.STRING;
+        if (isID(s, from, len)) return TokenBuffer.IDENTIFIER;
+        if (len == 1) return Lexicon.symbol(s.charAt(from));
+        return TokenBuffer.UNKNOWN;
     }
 
-    public static void tokenize(String code) {
-        List<String> toks = new ArrayList<>();
-        StringBuilder curTok = new StringBuilder();
-        int len = code.length();
-        boolean inCmnt = false, inMultiCmnt = false;
-
-        for (int i = 0; i < len; i++) {
-            char c = code.charAt(i);
-
-            // Handle single-line comments (~~)
-            if (!inCmnt && !inMultiCmnt && i < len - 1 && code.substring(i, i + 2).equals("~~")) {
-                inCmnt = true;
-                i++;
-                continue;
-            }
-            if (inCmnt && c == '\n') {
-                inCmnt = false;
-                continue;
-            }
+    /**
+     * Resumable scanner core. {@link #run} may stop one character early when a two-character
+     * comment marker could straddle the end of the supplied window; callers resume from the
+     * returned index once more input is available.
+     */
+    static final class Lexer {
+        static final int NORMAL = 0, LINE_CMNT = 1, BLOCK_CMNT = 2, IN_STR = 3;
 
-            // Handle multi-line comments (-% ... %-)
-            if (!inCmnt && !inMultiCmnt && i < len - 1 && code.substring(i, i + 2).equals("-%")) {
-                inMultiCmnt = true;
-                i++;
-                continue;
-            }
-            if (inMultiCmnt && i < len - 1 && code.substring(i, i + 2).equals("%-")) {
-                inMultiCmnt = false;
-                i++;
-                continue;
-            }
-            if (inCmnt || inMultiCmnt) continue;
+        int mode = NORMAL;
+        int line = 1;
+        int tokLine;
+        long tokStart = -1;
+
+        int run(CharSequence s, int from, int to, long base, boolean eof, TokenSink out) {
+            int i = from;
+            for (; i < to; i++) {
+                char c = s.charAt(i);
+                if (i == to - 1 && !eof && needsNext(c)) break;
+                if (c == '\n') line++;
 
-            if (Character.isWhitespace(c)) {
-                if (curTok.length() > 0) {
-                    toks.add(curTok.toString());
-                    curTok.setLength(0);
+                // inside comments and strings, jump to the next char that can end them
+                switch (mode) {
+                    case LINE_CMNT: {
+                        if (c == '\n') {
+                            mode = NORMAL;
+                            continue;
+                        }
+                        int nl = FastSkip.indexOf(s, '\n', i + 1, to);
+                        i = (nl < 0 ? to : nl) - 1;
+                        continue;
+                    }
+                    case BLOCK_CMNT: {
+                        if (c == '%' && i < to - 1 && s.charAt(i + 1) == '-') {
+                            mode = NORMAL;
+                            i++;
+                            continue;
+                        }
+                        int pct = FastSkip.indexOf(s, '%', i + 1, to), stop = pct < 0 ? to : pct;
+                        line += FastSkip.count(s, '\n', i + 1, stop);
+                        i = stop - 1;
+                        continue;
+                    }
+                    case IN_STR: {
+                        if (c == '"') {
+                            int rel = (int) (tokStart - base);
+                            out.token(TokenBuffer.STRING, s, rel, i + 1 - rel, tokStart, tokLine);
+                            tokStart = -1;
+                            mode = NORMAL;
+                            continue;
+                        }
+                        int q = FastSkip.indexOf(s, '"', i + 1, to), stop = q < 0 ? to : q;
+                        line += FastSkip.count(s, '\n', i + 1, stop);
+                        i = stop - 1;
+                        continue;
+                    }
+                    default:
+                        break;
+                }
+
+                // Handle single-line comments (~~)
+                if (c == '~' && i < to - 1 && s.charAt(i + 1) == '~') {
+                    flush(s, i, base, out);
+                    mode = LINE_CMNT;
+                    i++;
+                    continue;
                 }
-                continue;
-            }
 
-            if (isOp(c) || isDelim(c)) {
-                if (curTok.length() > 0) {
-                    toks.add(curTok.toString());
-                    curTok.setLength(0);
+                // Handle multi-line comments (-% ... %-)
+                if (c == '-' && i < to - 1 && s.charAt(i + 1) == '%') {
+                    flush(s, i, base, out);
+                    mode = BLOCK_CMNT;
+                    i++;
+                    continue;
+                }
+
+                if (Character.isWhitespace(c)) {
+                    flush(s, i, base, out);
+                    i = FastSkip.skipBlanks(s, i + 1, to) - 1;
+                    continue;
+                }
+
+                if (c == '"') {
+                    flush(s, i, base, out);
+                    tokStart = base + i;
+                    tokLine = line;
+                    mode = IN_STR;
+                    continue;
+                }
+
+                byte kind = Lexicon.symbol(c);
+                if (kind != TokenBuffer.UNKNOWN) {
+                    flush(s, i, base, out);
+                    out.token(kind, s, i, 1, base + i, line);
+                    continue;
+                }
+
+                if (tokStart < 0) {
+                    tokStart = base + i;
+                    tokLine = line;
                 }
-                toks.add(Character.toString(c));
-                continue;
             }
+            if (eof && i == to) finish(s, to, base, out);
+            return i;
+        }
 
-            curTok.append(c);
+        private boolean needsNext(char c) {
+            return mode == NORMAL ? c == '~' || c == '-' : mode == BLOCK_CMNT && c == '%';
         }
 
-        if (curTok.length() > 0) {
-            toks.add(curTok.toString());
+        private void flush(CharSequence s, int end, long base, TokenSink out) {
+            if (tokStart < 0) return;
+            int rel = (int) (tokStart - base);
+            out.token(classify(s, rel, end - rel), s, rel, end - rel, tokStart, tokLine);
+            tokStart = -1;
         }
 
-        for (String tok : toks) {
-            if (isKey(tok)) {
-                System.out.println("KEYWORD: " + tok + " (" + keys.get(tok) + ")");
-            } else if (isInt(tok)) {
-                System.out.println("INTEGER: " + tok);
-            } else if (isFloat(tok)) {
-                System.out.println("FLOAT: " + tok);
-            } else if (isStr(tok)) {
-                System.out.println("STRING: " + tok);
-            } else if (isID(tok)) {
-                System.out.println("IDENTIFIER: " + tok);
-            } else if (tok.length() == 1 && isOp(tok.charAt(0))) {
-                System.out.println("OPERATOR: " + tok);
-            } else if (tok.length() == 1 && isDelim(tok.charAt(0))) {
-                System.out.println("DELIMITER: " + tok + " (" + delims.get(tok.charAt(0)) + ")");
-            } else {
-                System.out.println("UNKNOWN TOKEN: " + tok);
+        private void finish(CharSequence s, int end, long base, TokenSink out) {
+            if (mode == IN_STR) {
+                int rel = (int) (tokStart - base);
+                out.token(TokenBuffer.UNKNOWN, s, rel, end - rel, tokStart, tokLine);
+                tokStart = -1;
+            } else if (mode == NORMAL) {
+                flush(s, end, base, out);
             }
+            out.end();
+        }
+    }
+
+    public static TokenBuffer scan(String code) {
+        Telemetry.Tokenize ev = Telemetry.Tokenize.start("SymbolTable");
+        TokenBuffer toks = new TokenBuffer(code);
+        new Lexer().run(code, 0, code.length(), 0, true, toks);
+        ev.done(code.length(), toks.size());
+        return toks;
+    }
+
+    static String delimName(char c) {
+        return switch (c) {
+            case ';' -> "semi colon";
+            case '(' -> "open bracket";
+            case ')' -> "close bracket";
+            case '{' -> "open curly bracket";
+            default -> "close curly bracket";
+        };
+    }
+
+    /** Lexes {@code code} into {@code out}, for example a {@link TokenWriter}. */
+    public static void tokenize(String code, TokenSink out) {
+        new Lexer().run(code, 0, code.length(), 0, true, out);
+    }
+
+    public static void tokenize(String code) {
+        tokenize(code, TokenWriter.text(TokenWriter.stdout()));
+    }
+
+    private static Lexicon.Keyword typeOf(TokenBuffer toks, int i) {
+        if (toks.kind(i) != TokenBuffer.KEYWORD) return null;
+        Lexicon.Keyword k = Lexicon.keyword(toks.source(), toks.start(i), toks.length(i));
+        return k.isType() ? k : null;
+    }
+
+    /**
+     * Declares every {@code <type> <identifier>} pair and resolves all other identifier uses, scoping
+     * at braces; redeclarations are logged to {@code errs}.
+     */
+    static Scopes symbols(TokenBuffer toks, NameTable names, ErrorHandler errs) {
+        Scopes scopes = new Scopes(names);
+        CharSequence src = toks.source();
+        for (int i = 0; i < toks.size(); i++) {
+            switch (toks.kind(i)) {
+                case TokenBuffer.OPEN_CURLY -> scopes.push();
+                case TokenBuffer.CLOSE_CURLY -> scopes.pop();
+                case TokenBuffer.IDENTIFIER -> {
+                    int name = names.intern(src, toks.start(i), toks.length(i));
+                    Lexicon.Keyword type = i > 0 ? typeOf(toks, i - 1) : null;
+                    if (type == null) scopes.reference(name, toks.line(i));
+                    else if (scopes.declare(name, (byte) type.ordinal(), toks.line(i)) < 0) {
+                        errs.logError(toks.line(i), "Redeclared identifier: " + names.name(name));
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return scopes;
+    }
+
+    public static void printSymbols(Scopes scopes) {
+        NameTable names = scopes.names();
+        for (int sym = 0; sym < scopes.size(); sym++) {
+            System.out.println((scopes.depth(sym) == 0 ? "GLOBAL: " : "LOCAL: ") + names.name(scopes.name(sym))
+                    + " (" + Lexicon.Keyword.values()[scopes.type(sym)].meaning() + ", line " + scopes.line(sym) + ")");
+        }
+        for (int i = 0; i < scopes.missCount(); i++) {
+            System.out.println("UNDECLARED: " + names.name(scopes.missName(i)) + " (line " + scopes.missLine(i) + ")");
         }
     }
 
@@ -146,5 +251,8 @@ class SymbolTable {
                 + "-% This is a multi-line comment %-"
                 + "lafz name = \"Blah\"; lo(name); do(\"Salam\");";
         tokenize(input);
+        ErrorHandler errs = new ErrorHandler();
+        printSymbols(symbols(scan(input), new NameTable(), errs));
+        if (errs.hasErrors()) errs.printErrors();
     }
 }
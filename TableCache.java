@@ -0,0 +1,148 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * On-disk cache of generated scanner tables, one file per spec named by its hash. A file is a
+ * little-endian int array:
+ * <pre>
+ *   magic, version, hash (2 ints), states, classes, start, intervals, tags,
+ *   next[states * classes], label[states], lo[intervals], cls[intervals], kindOf[tags]
+ * </pre>
+ * Loading maps the file and hands views of the mapping to the scanner, so the transition table is
+ * read in place and never copied onto the heap.
+ */
+public class TableCache {
+    static final int MAGIC = 0x41464452; // "RDFA" in little-endian byte order
+    static final int VERSION = 1;
+    private static final int HEADER = 9;
+
+    private final Path dir;
+
+    public TableCache(Path dir) {
+        this.dir = dir;
+    }
+
+    public static Path defaultDir() {
+        return Paths.get(System.getProperty("java.io.tmpdir"), "roman-urdu-dfa");
+    }
+
+    Path fileFor(long hash) {
+        return dir.resolve(String.format("%016x.dfa", hash));
+    }
+
+    /** Returns the scanner for {@code spec}, from the cache if it holds a valid table, else generated and stored. */
+    public LexerGenerator.Scanner scanner(LexerGenerator spec) {
+        long hash = spec.specHash();
+        Path file = fileFor(hash);
+        LexerGenerator.Scanner cached = load(file, hash);
+        if (cached != null) return cached;
+
+        LexerGenerator.Scanner sc = spec.generate();
+        try {
+            store(sc, hash, file);
+        } catch (IOException e) {
+            // the cache only saves time; an unwritable directory must not stop a compile
+        }
+        return sc;
+    }
+
+    /** Maps {@code file}; returns null if it is missing, truncated, inconsistent or was written for another spec or version. */
+    static LexerGenerator.Scanner load(Path file, long hash) {
+        IntBuffer ib;
+        try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = fc.size();
+            if (size < HEADER * 4 || size % 4 != 0) return null;
+            ib = fc.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        } catch (IOException e) {
+            return null;
+        }
+        if (ib.get(0) != MAGIC || ib.get(1) != VERSION) return null;
+        if (((long) ib.get(2) << 32 | ib.get(3) & 0xffffffffL) != hash) return null;
+        int states = ib.get(4), classes = ib.get(5), start = ib.get(6), m = ib.get(7), tags = ib.get(8);
+        long cells = (long) states * classes;
+        if (states <= 0 || classes <= 0 || m <= 0 || tags <= 0 || start < 0 || start >= states
+                || ib.limit() != HEADER + cells + states + 2L * m + tags) return null;
+
+        // the scanner indexes with these unchecked, so a corrupt file must fail here, not mid-scan
+        int at = HEADER;
+        IntBuffer next = slice(ib, at, (int) cells);
+        for (int i = 0; i < cells; i++) {
+            if (next.get(i) < -1 || next.get(i) >= states) return null;
+        }
+        at += (int) cells;
+        IntBuffer label = slice(ib, at, states);
+        for (int s = 0; s < states; s++) {
+            if (label.get(s) < 0 || label.get(s) >= tags) return null;
+        }
+        at += states;
+        char[] lo = new char[m];
+        int[] cls = new int[m];
+        for (int j = 0; j < m; j++) {
+            int c = ib.get(at + j);
+            if (j == 0 ? c != 0 : c <= lo[j - 1] || c > Character.MAX_VALUE) return null;
+            lo[j] = (char) c;
+            cls[j] = ib.get(at + m + j);
+            if (cls[j] < 0 || cls[j] >= classes) return null;
+        }
+        at += 2 * m;
+        byte[] kindOf = new byte[tags];
+        for (int t = 0; t < tags; t++) kindOf[t] = (byte) ib.get(at + t);
+        return new LexerGenerator.Scanner(states, classes, start, next, label,
+                new RegexToNFA.CharClasses(lo, cls, classes), kindOf);
+    }
+
+    private static IntBuffer slice(IntBuffer ib, int from, int len) {
+        return ib.duplicate().position(from).limit(from + len).slice();
+    }
+
+    static void store(LexerGenerator.Scanner sc, long hash, Path file) throws IOException {
+        int m = sc.chars.lo.length, tags = sc.kindOf.length, cells = sc.states * sc.classes;
+        ByteBuffer bb = ByteBuffer.allocate(4 * (HEADER + cells + sc.states + 2 * m + tags)).order(ByteOrder.LITTLE_ENDIAN);
+        bb.putInt(MAGIC).putInt(VERSION).putInt((int) (hash >>> 32)).putInt((int) hash)
+                .putInt(sc.states).putInt(sc.classes).putInt(sc.start).putInt(m).putInt(tags);
+        for (int i = 0; i < cells; i++) bb.putInt(sc.next.get(i));
+        for (int s = 0; s < sc.states; s++) bb.putInt(sc.label.get(s));
+        for (char c : sc.chars.lo) bb.putInt(c);
+        for (int c : sc.chars.cls) bb.putInt(c);
+        for (byte k : sc.kindOf) bb.putInt(k);
+        bb.flip();
+
+        // write beside the target and rename, so readers never map a half-written file
+        Files.createDirectories(file.getParent());
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel fc = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                while (bb.hasRemaining()) fc.write(bb);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public static void main(String[] args) {
+        TableCache cache = new TableCache(args.length > 0 ? Paths.get(args[0]) : defaultDir());
+        LexerGenerator spec = LexerGenerator.romanUrdu();
+
+        long t0 = System.nanoTime();
+        LexerGenerator.Scanner generated = spec.generate();
+        long t1 = System.nanoTime();
+        cache.scanner(spec); // fills the cache on the first run
+        long t2 = System.nanoTime();
+        LexerGenerator.Scanner loaded = cache.scanner(spec);
+        long t3 = System.nanoTime();
+
+        String code = "adad x = 10; -% note %- likho(x);";
+        boolean same = generated.scan(code).tags().equals(loaded.scan(code).tags());
+        System.out.println("generated in " + (t1 - t0) / 1000 + " us, loaded from cache in " + (t3 - t2) / 1000
+                + " us, same tokens: " + same);
+        System.out.println("cache file: " + cache.fileFor(spec.specHash()));
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.demo;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Per-phase instrumentation in two layers. Each phase commits a Flight Recorder event, which the
+ * JIT reduces to nothing unless a recording has the event enabled, so it can stay in place under
+ * load. Process-wide counters are kept only when the JVM starts with {@code -Droman.metrics=true};
+ * the flag is a {@code static final}, so with it off the counting code is folded away too.
+ * <pre>
+ *   java -XX:StartFlightRecording:filename=run.jfr ...   then   jfr print --categories "Roman Urdu" run.jfr
+ * </pre>
+ */
+public final class Telemetry {
+    static final boolean METRICS = Boolean.getBoolean("roman.metrics");
+
+    // per phase: calls, nanos, then the phase's own quantities
+    private static final String[][] NAMES = {
+            {"tokenize.calls", "tokenize.nanos", "tokenize.chars", "tokenize.tokens"},
+            {"analyze.calls", "analyze.nanos", "analyze.lines", "analyze.errors"},
+            {"convertToDFA.calls", "convertToDFA.nanos", "convertToDFA.nfaStates", "convertToDFA.dfaStates", "convertToDFA.closures"}
+    };
+    private static final int TOKENIZE = 0, ANALYZE = 1, CONVERT = 2;
+    private static final LongAdder[][] COUNTERS = new LongAdder[NAMES.length][];
+
+    static {
+        for (int p = 0; p < NAMES.length; p++) {
+            COUNTERS[p] = new LongAdder[NAMES[p].length];
+            for (int i = 0; i < NAMES[p].length; i++) COUNTERS[p][i] = new LongAdder();
+        }
+    }
+
+    private Telemetry() {
+    }
+
+    private static long now() {
+        return METRICS ? System.nanoTime() : 0;
+    }
+
+    private static void count(int phase, long t0, long a, long b, long c) {
+        LongAdder[] k = COUNTERS[phase];
+        k[0].increment();
+        k[1].add(System.nanoTime() - t0);
+        k[2].add(a);
+        k[3].add(b);
+        if (k.length > 4) k[4].add(c);
+    }
+
+    /** Current value of every counter by name; all zero unless {@code roman.metrics} is set. */
+    public static Map<String, Long> snapshot() {
+        Map<String, Long> m = new TreeMap<>();
+        for (int p = 0; p < NAMES.length; p++) {
+            for (int i = 0; i < NAMES[p].length; i++) m.put(NAMES[p][i], COUNTERS[p][i].sum());
+        }
+        return m;
+    }
+
+    public static void reset() {
+        for (LongAdder[] phase : COUNTERS) {
+            for (LongAdder k : phase) k.reset();
+        }
+    }
+
+    @Name("com.example.demo.Tokenize")
+    @Label("Tokenize")
+    @Category("Roman Urdu")
+    @Description("One source lexed into a token buffer")
+    static final class Tokenize extends Event {
+        @Label("Lexer")
+        String lexer;
+        @Label("Chars")
+        long chars;
+        @Label("Tokens")
+        int tokens;
+        transient long t0;
+
+        static Tokenize start(String lexer) {
+            Tokenize ev = new Tokenize();
+            ev.begin();
+            ev.lexer = lexer;
+            ev.t0 = now();
+            return ev;
+        }
+
+        void done(long chars, int tokens) {
+            if (METRICS) count(TOKENIZE, t0, chars, tokens, 0);
+            end();
+            if (shouldCommit()) {
+                this.chars = chars;
+                this.tokens = tokens;
+                commit();
+            }
+        }
+    }
+
+    @Name("com.example.demo.Analyze")
+    @Label("Analyze")
+    @Category("Roman Urdu")
+    @Description("One source lexed and checked by ErrorHandler")
+    static final class Analyze extends Event {
+        @Label("Lines")
+        int lines;
+        @Label("Errors")
+        int errors;
+        transient long t0;
+
+        static Analyze start() {
+            Analyze ev = new Analyze();
+            ev.begin();
+            ev.t0 = now();
+            return ev;
+        }
+
+        void done(int lines, int errors) {
+            if (METRICS) count(ANALYZE, t0, lines, errors, 0);
+            end();
+            if (shouldCommit()) {
+                this.lines = lines;
+                this.errors = errors;
+                commit();
+            }
+        }
+    }
+
+    @Name("com.example.demo.ConvertToDFA")
+    @Label("Convert to DFA")
+    @Category("Roman Urdu")
+    @Description("Subset construction of a regex NFA")
+    static final class ConvertToDFA extends Event {
+        @Label("NFA States")
+        int nfaStates;
+        @Label("DFA States")
+        int dfaStates;
+        @Label("Closure Computations")
+        @Description("Epsilon closures precomputed plus closure unions during the subset construction")
+        long closures;
+        transient long t0;
+
+        static ConvertToDFA start() {
+            ConvertToDFA ev = new ConvertToDFA();
+            ev.begin();
+            ev.t0 = now();
+            return ev;
+        }
+
+        void done(int nfaStates, int dfaStates, long closures) {
+            if (METRICS) count(CONVERT, t0, nfaStates, dfaStates, closures);
+            end();
+            if (shouldCommit()) {
+                this.nfaStates = nfaStates;
+                this.dfaStates = dfaStates;
+                this.closures = closures;
+                commit();
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        String code = "adad x = 5; agar (x > 3) { likho(\"Bara hai!\"); }\n~~ note\nlafz s = \"salam\"\n";
+        for (int i = 0; i < 1000; i++) {
+            Tokenizer.scan(code);
+            SymbolTable.scan(code);
+            new ErrorHandler().analyze(code);
+        }
+        RegexToNFA.convertToDFA(RegexToNFA.convertToNFA("(lo|do|likho|jhanda|adad|asharia|harf|lafz)*"));
+        if (!METRICS) System.out.println("Counters are off; run with -Droman.metrics=true");
+        snapshot().forEach((k, v) -> System.out.println(k + " = " + v));
+    }
+}
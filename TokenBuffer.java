@@ -0,0 +1,161 @@
+package com.example.demo;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Token stream stored as parallel primitive arrays pointing into the original source.
+ * Lexeme text is only materialized on request through {@link #text(int)}.
+ */
+public class TokenBuffer implements TokenSink {
+    public static final byte KEYWORD = 0, IDENTIFIER = 1, INTEGER = 2, FLOAT = 3, STRING = 4, OPERATOR = 5,
+            SEMICOLON = 6, OPEN_BRACKET = 7, CLOSE_BRACKET = 8, OPEN_CURLY = 9, CLOSE_CURLY = 10, UNKNOWN = 11;
+
+    private static final String[] NAMES = {"KEYWORD", "IDENTIFIER", "INTEGER", "FLOAT", "STRING", "OPERATOR",
+            "SEMICOLON", "OPEN BRACKET", "CLOSE BRACKET", "OPEN CURLY BRACKET", "CLOSE CURLY BRACKET", "UNKNOWN TOKEN"};
+    private static final String[] TAGS = new String[NAMES.length];
+
+    static {
+        for (int i = 0; i < NAMES.length; i++) TAGS[i] = "[" + NAMES[i] + "]";
+    }
+
+    private final CharSequence src;
+    private byte[] kinds;
+    private int[] starts;
+    private int[] lens;
+    private int[] lines;
+    private int size;
+
+    public TokenBuffer(CharSequence src) {
+        this(src, src.length() / 8 + 16);
+    }
+
+    /** Token starts index the UTF-8 bytes of {@code src}; text is decoded per lexeme on request. */
+    public TokenBuffer(ByteBuffer src) {
+        this(new Utf8Lexer.Source(src));
+    }
+
+    public TokenBuffer(CharSequence src, int capacity) {
+        this.src = src;
+        kinds = new byte[capacity];
+        starts = new int[capacity];
+        lens = new int[capacity];
+        lines = new int[capacity];
+    }
+
+    public void add(byte kind, int start, int len, int line) {
+        if (size == kinds.length) grow();
+        kinds[size] = kind;
+        starts[size] = start;
+        lens[size] = len;
+        lines[size] = line;
+        size++;
+    }
+
+    @Override
+    public void token(byte kind, CharSequence src, int off, int len, long pos, int line) {
+        add(kind, (int) pos, len, line);
+    }
+
+    void set(int i, byte kind, int start, int len, int line) {
+        kinds[i] = kind;
+        starts[i] = start;
+        lens[i] = len;
+        lines[i] = line;
+    }
+
+    void truncate(int n) {
+        size = n;
+    }
+
+    /** Appends tokens {@code [from, to)} of {@code o}, shifting their starts and lines by the given deltas. */
+    void append(TokenBuffer o, int from, int to, int startDelta, int lineDelta) {
+        int n = to - from;
+        if (n <= 0) return;
+        if (size + n > kinds.length) {
+            int cap = Math.max(size + n, kinds.length + (kinds.length >> 1));
+            kinds = Arrays.copyOf(kinds, cap);
+            starts = Arrays.copyOf(starts, cap);
+            lens = Arrays.copyOf(lens, cap);
+            lines = Arrays.copyOf(lines, cap);
+        }
+        System.arraycopy(o.kinds, from, kinds, size, n);
+        System.arraycopy(o.lens, from, lens, size, n);
+        for (int i = 0; i < n; i++) {
+            starts[size + i] = o.starts[from + i] + startDelta;
+            lines[size + i] = o.lines[from + i] + lineDelta;
+        }
+        size += n;
+    }
+
+    private void grow() {
+        int cap = kinds.length + (kinds.length >> 1) + 16;
+        kinds = Arrays.copyOf(kinds, cap);
+        starts = Arrays.copyOf(starts, cap);
+        lens = Arrays.copyOf(lens, cap);
+        lines = Arrays.copyOf(lines, cap);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte kind(int i) {
+        return kinds[i];
+    }
+
+    public int start(int i) {
+        return starts[i];
+    }
+
+    public int length(int i) {
+        return lens[i];
+    }
+
+    public int line(int i) {
+        return lines[i];
+    }
+
+    public CharSequence source() {
+        return src;
+    }
+
+    public char charAt(int i, int off) {
+        return src.charAt(starts[i] + off);
+    }
+
+    public String text(int i) {
+        return Utf8Lexer.text(src, starts[i], lens[i]);
+    }
+
+    /** Index of the last token starting before {@code pos}, or -1. */
+    public int indexBefore(int pos) {
+        int lo = 0, hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] < pos) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        return hi;
+    }
+
+    public static String kindName(byte kind) {
+        return NAMES[kind];
+    }
+
+    /** The legacy {@code "[KIND]"} form, computed per element on access. */
+    public List<String> tags() {
+        return new AbstractList<>() {
+            @Override
+            public String get(int i) {
+                Objects.checkIndex(i, size);
+                return TAGS[kinds[i]];
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
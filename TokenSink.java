@@ -0,0 +1,13 @@
+package com.example.demo;
+
+/**
+ * Receives tokens as a lexer emits them. The lexeme is {@code src[off, off + len)} and is only
+ * guaranteed to stay readable for the duration of the call; {@code pos} is the absolute offset
+ * of the token in the input.
+ */
+public interface TokenSink {
+    void token(byte kind, CharSequence src, int off, int len, long pos, int line);
+
+    default void end() {
+    }
+}
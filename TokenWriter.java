@@ -0,0 +1,242 @@
+package com.example.demo;
+
+import java.io.FileOutputStream;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes tokens to a channel through one large buffer that goes out in bulk writes, instead of a
+ * locked, flushed {@code println} per token. Lexeme bytes are copied straight from the source:
+ * {@link Utf8Lexer} sources already hold UTF-8, and {@code String} sources are encoded on the way.
+ * {@link #end()} flushes; the channel stays open and belongs to the caller.
+ */
+public abstract class TokenWriter implements TokenSink {
+    private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final int CAPACITY = 1 << 20;
+
+    private static final byte[][] NAMES = new byte[TokenBuffer.UNKNOWN + 1][];
+    private static final byte[] U00 = {'u', '0', '0'};
+
+    static {
+        for (byte k = 0; k <= TokenBuffer.UNKNOWN; k++) NAMES[k] = TokenBuffer.kindName(k).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private final WritableByteChannel out;
+    final byte[] b = new byte[CAPACITY];
+    int n;
+
+    TokenWriter(WritableByteChannel out) {
+        this.out = out;
+    }
+
+    /** Lines in the {@code SymbolTable.tokenize} format, such as {@code KEYWORD: adad (integer)}. */
+    public static TokenWriter text(WritableByteChannel out) {
+        return new Text(out);
+    }
+
+    /** One JSON object per line: {@code {"kind":"KEYWORD","text":"adad","pos":0,"line":1}}. */
+    public static TokenWriter jsonLines(WritableByteChannel out) {
+        return new JsonLines(out);
+    }
+
+    /**
+     * Fixed 17-byte little-endian records {@code kind:u8, pos:i64, len:i32, line:i32} after an
+     * 8-byte header {@code "RTOK", version:i32}; the lexeme bytes themselves stay in the source.
+     */
+    public static TokenWriter binary(WritableByteChannel out) {
+        return new Binary(out);
+    }
+
+    /** Standard output as a channel, without {@code System.out}'s per-line flushing. */
+    public static WritableByteChannel stdout() {
+        return new FileOutputStream(FileDescriptor.out).getChannel();
+    }
+
+    @Override
+    public void end() {
+        flush();
+    }
+
+    public void flush() {
+        ByteBuffer bb = ByteBuffer.wrap(b, 0, n);
+        try {
+            while (bb.hasRemaining()) out.write(bb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        n = 0;
+    }
+
+    final void room(int k) {
+        if (CAPACITY - n < k) flush();
+    }
+
+    final void put(byte x) {
+        if (n == CAPACITY) flush();
+        b[n++] = x;
+    }
+
+    final void put(byte[] x) {
+        if (x.length > CAPACITY) {
+            for (byte y : x) put(y);
+            return;
+        }
+        room(x.length);
+        System.arraycopy(x, 0, b, n, x.length);
+        n += x.length;
+    }
+
+    final void putInt(long v) {
+        room(20);
+        if (v < 0) {
+            b[n++] = '-';
+            v = -v;
+        }
+        int digits = 1;
+        for (long t = v; t >= 10; t /= 10) digits++;
+        n += digits;
+        for (int i = n - 1; i >= n - digits; i--, v /= 10) b[i] = (byte) ('0' + v % 10);
+    }
+
+    final void putLE(int v) {
+        INTS.set(b, n, v);
+        n += 4;
+    }
+
+    final void putLE(long v) {
+        LONGS.set(b, n, v);
+        n += 8;
+    }
+
+    /** Appends {@code src[off, off + len)} as UTF-8, escaping it for JSON if asked. */
+    final void putText(CharSequence src, int off, int len, boolean json) {
+        boolean raw = src instanceof Utf8Lexer.Source;
+        for (int i = off, end = off + len; i < end; ) {
+            // copy a run that needs no escaping or encoding straight into the buffer
+            if (n == CAPACITY) flush();
+            int stop = Math.min(end, i + CAPACITY - n);
+            for (; i < stop; i++) {
+                char c = src.charAt(i);
+                if ((c >= 0x80 && !raw) || (json && (c == '"' || c == '\\' || c < 0x20))) break;
+                b[n++] = (byte) c;
+            }
+            if (i == stop) continue;
+            char c = src.charAt(i);
+            if (c < 0x80 || raw) {
+                escape(c);
+                i++;
+            } else {
+                // rare in this language: encode the rest of the lexeme in one go, surrogates included
+                byte[] enc = src.subSequence(i, end).toString().getBytes(StandardCharsets.UTF_8);
+                if (!json) {
+                    put(enc);
+                    return;
+                }
+                for (int k = 0; k < enc.length; k++) {
+                    if (enc[k] == '"' || enc[k] == '\\' || (enc[k] >= 0 && enc[k] < 0x20)) escape((char) enc[k]);
+                    else put(enc[k]);
+                }
+                return;
+            }
+        }
+    }
+
+    private void escape(char c) {
+        put((byte) '\\');
+        switch (c) {
+            case '"', '\\' -> put((byte) c);
+            case '\n' -> put((byte) 'n');
+            case '\t' -> put((byte) 't');
+            case '\r' -> put((byte) 'r');
+            default -> {
+                put(U00);
+                put((byte) Character.forDigit(c >> 4, 16));
+                put((byte) Character.forDigit(c & 15, 16));
+            }
+        }
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static final class Text extends TokenWriter {
+        private static final byte[][] PREFIX = new byte[TokenBuffer.UNKNOWN + 1][];
+        private static final byte[][] SUFFIX = new byte[128][]; // by delimiter char
+        private static final byte[][] MEANING = new byte[Lexicon.Keyword.values().length][];
+
+        static {
+            for (byte k = 0; k <= TokenBuffer.UNKNOWN; k++) {
+                String name = k >= TokenBuffer.SEMICOLON && k <= TokenBuffer.CLOSE_CURLY ? "DELIMITER"
+                        : k == TokenBuffer.UNKNOWN ? "UNKNOWN TOKEN" : TokenBuffer.kindName(k);
+                PREFIX[k] = ascii(name + ": ");
+            }
+            for (char c : ";(){}".toCharArray()) SUFFIX[c] = ascii(" (" + SymbolTable.delimName(c) + ")\n");
+            for (Lexicon.Keyword k : Lexicon.Keyword.values()) MEANING[k.ordinal()] = ascii(" (" + k.meaning() + ")\n");
+        }
+
+        Text(WritableByteChannel out) {
+            super(out);
+        }
+
+        @Override
+        public void token(byte kind, CharSequence src, int off, int len, long pos, int line) {
+            put(PREFIX[kind]);
+            putText(src, off, len, false);
+            if (kind == TokenBuffer.KEYWORD) put(MEANING[Lexicon.keyword(src, off, len).ordinal()]);
+            else if (kind >= TokenBuffer.SEMICOLON && kind <= TokenBuffer.CLOSE_CURLY) put(SUFFIX[src.charAt(off)]);
+            else put((byte) '\n');
+        }
+    }
+
+    private static final class JsonLines extends TokenWriter {
+        private static final byte[] KIND = ascii("{\"kind\":\""), TEXT = ascii("\",\"text\":\""),
+                POS = ascii("\",\"pos\":"), LINE = ascii(",\"line\":"), CLOSE = ascii("}\n");
+
+        JsonLines(WritableByteChannel out) {
+            super(out);
+        }
+
+        @Override
+        public void token(byte kind, CharSequence src, int off, int len, long pos, int line) {
+            put(KIND);
+            put(NAMES[kind]);
+            put(TEXT);
+            putText(src, off, len, true);
+            put(POS);
+            putInt(pos);
+            put(LINE);
+            putInt(line);
+            put(CLOSE);
+        }
+    }
+
+    private static final class Binary extends TokenWriter {
+        static final int MAGIC = 0x4b4f5452; // "RTOK" in little-endian byte order
+        static final int VERSION = 1;
+        static final int RECORD = 17;
+
+        Binary(WritableByteChannel out) {
+            super(out);
+            putLE(MAGIC);
+            putLE(VERSION);
+        }
+
+        @Override
+        public void token(byte kind, CharSequence src, int off, int len, long pos, int line) {
+            room(RECORD);
+            b[n++] = kind;
+            putLE(pos);
+            putLE(len);
+            putLE(line);
+        }
+    }
+}
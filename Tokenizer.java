@@ -3,33 +3,67 @@ package com.example.demo;
 import java.util.*;
 public class Tokenizer {
     static class DFA {
-        private final Set<String> keys;
-        private final Set<Character> ops;
-        private final Set<Character> puncs;
-
-        public DFA() {
-            keys = new HashSet<>(Arrays.asList("adad", "agar", "warna", "likho", "lafz", "lo", "do"));
-            ops = new HashSet<>(Arrays.asList('+', '-', '*', '/', '=', '>', '<', '!'));
-            puncs = new HashSet<>(Arrays.asList(';', '(', ')', '{', '}'));
+        static final int LETTER = 0, DIGIT = 1, QUOTE = 2, OP = 3, PUNC = 4, SPACE = 5, OTHER = 6;
+        static final int START = 0, ID = 1, INT = 2, STR = 3, STR_END = 4, OPER = 5, PUNCT = 6, DEAD = 7;
+
+        static final byte[] CLS = new byte[128];
+        static final int[][] NEXT = {
+                // LETTER  DIGIT    QUOTE    OP       PUNC     SPACE    OTHER
+                {ID,      INT,     STR_END, OPER,    PUNCT,   DEAD,    DEAD},   // START
+                {ID,      ID,      DEAD,    DEAD,    DEAD,    DEAD,    DEAD},   // ID
+                {DEAD,    INT,     DEAD,    DEAD,    DEAD,    DEAD,    DEAD},   // INT
+                {STR,     STR,     STR_END, STR,     STR,     STR,     STR},    // STR
+                {STR,     STR,     STR_END, STR,     STR,     STR,     STR},    // STR_END
+                {DEAD,    DEAD,    DEAD,    DEAD,    DEAD,    DEAD,    DEAD},   // OPER
+                {DEAD,    DEAD,    DEAD,    DEAD,    DEAD,    DEAD,    DEAD},   // PUNCT
+                {DEAD,    DEAD,    DEAD,    DEAD,    DEAD,    DEAD,    DEAD},   // DEAD
+        };
+
+        static {
+            Arrays.fill(CLS, (byte) OTHER);
+            for (char c = 'a'; c <= 'z'; c++) CLS[c] = LETTER;
+            for (char c = 'A'; c <= 'Z'; c++) CLS[c] = LETTER;
+            CLS['_'] = LETTER;
+            for (char c = '0'; c <= '9'; c++) CLS[c] = DIGIT;
+            CLS['"'] = QUOTE;
+            for (char c = 0; c < 128; c++) {
+                byte kind = Lexicon.symbol(c);
+                if (kind == TokenBuffer.OPERATOR) CLS[c] = OP;
+                else if (kind != TokenBuffer.UNKNOWN) CLS[c] = PUNC;
+            }
+            CLS[' '] = SPACE;
+            CLS['\n'] = SPACE;
         }
 
-        public String getType(String tok) {
-            if (keys.contains(tok)) return "KEYWORD";
-            if (tok.matches("[a-zA-Z_][a-zA-Z0-9_]*")) return "IDENTIFIER";
-            if (tok.matches("[0-9]+")) return "INTEGER";
-            if (tok.startsWith("\"") && tok.endsWith("\"")) return "STRING";
-            if (tok.length() == 1 && ops.contains(tok.charAt(0))) return "OPERATOR";
-            if (tok.length() == 1 && puncs.contains(tok.charAt(0))) {
-                return switch (tok.charAt(0)) {
-                    case ';' -> "SEMICOLON";
-                    case '(' -> "OPEN BRACKET";
-                    case ')' -> "CLOSE BRACKET";
-                    case '{' -> "OPEN CURLY BRACKET";
-                    case '}' -> "CLOSE CURLY BRACKET";
-                    default -> "UNKNOWN";
-                };
+        static int classOf(char c) {
+            return c < 128 ? CLS[c] : OTHER;
+        }
+
+        static int run(CharSequence s, int from, int to) {
+            int st = START;
+            for (int i = from; i < to; i++) st = NEXT[st][classOf(s.charAt(i))];
+            return st;
+        }
+
+        static byte type(int st, CharSequence s, int from, int to) {
+            switch (st) {
+                case ID:
+                    return Lexicon.keyword(s, from, to - from) != null ? TokenBuffer.KEYWORD : TokenBuffer.IDENTIFIER;
+                case INT:
+                    return TokenBuffer.INTEGER;
+                case STR_END:
+                    return TokenBuffer.STRING;
+                case OPER:
+                    return TokenBuffer.OPERATOR;
+                case PUNCT:
+                    return Lexicon.symbol(s.charAt(from));
+                default:
+                    return TokenBuffer.UNKNOWN;
             }
-            return "UNKNOWN TOKEN";
+        }
+
+        public String getType(String tok) {
+            return TokenBuffer.kindName(type(run(tok, 0, tok.length()), tok, 0, tok.length()));
         }
     }
 
@@ -42,46 +76,66 @@ public class Tokenizer {
     }
 
     public static List<String> tokenize(String input) {
-        List<String> toks = new ArrayList<>();
-        DFA dfa = new DFA();
-        StringBuilder curTok = new StringBuilder();
+        return scan(input).tags();
+    }
+
+    public static TokenBuffer scan(String input) {
+        Telemetry.Tokenize ev = Telemetry.Tokenize.start("Tokenizer");
+        TokenBuffer toks = new TokenBuffer(input);
+        int len = input.length(), st = DFA.START, start = -1, line = 1, startLine = 1;
         boolean inStr = false;
 
-        for (char c : input.toCharArray()) {
-            if (c == ' ' || c == '\n') {
-                if (curTok.length() > 0) {
-                    toks.add("[" + dfa.getType(curTok.toString()) + "]");
-                    curTok.setLength(0);
+        for (int i = 0; i < len; i++) {
+            char c = input.charAt(i);
+            int cls = DFA.classOf(c);
+
+            if (cls == DFA.SPACE) {
+                if (start >= 0) {
+                    toks.add(DFA.type(st, input, start, i), start, i - start, startLine);
+                    start = -1;
+                    st = DFA.START;
                 }
+                if (c == '\n') line++;
                 continue;
             }
 
-            if (c == '"') {
+            if (cls == DFA.QUOTE) {
                 inStr = !inStr;
-                curTok.append(c);
+                if (start < 0) {
+                    start = i;
+                    startLine = line;
+                }
+                st = DFA.NEXT[st][cls];
                 if (!inStr) {
-                    toks.add("[" + dfa.getType(curTok.toString()) + "]");
-                    curTok.setLength(0);
+                    toks.add(DFA.type(st, input, start, i + 1), start, i + 1 - start, startLine);
+                    start = -1;
+                    st = DFA.START;
                 }
                 continue;
             }
 
-            if (!inStr && (dfa.ops.contains(c) || dfa.puncs.contains(c))) {
-                if (curTok.length() > 0) {
-                    toks.add("[" + dfa.getType(curTok.toString()) + "]");
-                    curTok.setLength(0);
+            if (!inStr && (cls == DFA.OP || cls == DFA.PUNC)) {
+                if (start >= 0) {
+                    toks.add(DFA.type(st, input, start, i), start, i - start, startLine);
+                    start = -1;
+                    st = DFA.START;
                 }
-                toks.add("[" + dfa.getType(String.valueOf(c)) + "]");
+                toks.add(DFA.type(DFA.NEXT[DFA.START][cls], input, i, i + 1), i, 1, line);
                 continue;
             }
 
-            curTok.append(c);
+            if (start < 0) {
+                start = i;
+                startLine = line;
+            }
+            st = DFA.NEXT[st][cls];
         }
 
-        if (curTok.length() > 0) {
-            toks.add("[" + dfa.getType(curTok.toString()) + "]");
+        if (start >= 0) {
+            toks.add(DFA.type(st, input, start, len), start, len - start, startLine);
         }
 
+        ev.done(len, toks.size());
         return toks;
     }
 
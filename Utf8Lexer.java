@@ -0,0 +1,139 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * Lexes UTF-8 source straight from a {@link ByteBuffer}, heap, direct or mapped, without decoding
+ * it. All of the language's syntax is ASCII and every byte of a multi-byte UTF-8 sequence is
+ * 0x80 or above, so the {@link SymbolTable.Lexer} can run over the bytes read as Latin-1: ASCII
+ * bytes behave exactly as the chars they encode and other bytes can only ever land inside a
+ * string, a comment or an unknown token. Positions are byte offsets and lexeme text is decoded
+ * only when asked for.
+ */
+public final class Utf8Lexer {
+    private static final int MAP_CHUNK = 64 * 1024 * 1024;
+
+    private Utf8Lexer() {
+    }
+
+    /** Lexes {@code buf[position, limit)}; token starts are indexes into {@code buf}. */
+    public static TokenBuffer scan(ByteBuffer buf) {
+        TokenBuffer toks = new TokenBuffer(buf);
+        lex(buf, toks);
+        return toks;
+    }
+
+    public static void lex(ByteBuffer buf, TokenSink out) {
+        new SymbolTable.Lexer().run(new Source(buf), buf.position(), buf.limit(), 0, true, out);
+    }
+
+    /** Maps the whole file; it must be under 2 GB. Larger files go through {@link #lex(FileChannel, TokenSink)}. */
+    public static TokenBuffer scan(Path file) throws IOException {
+        try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (fc.size() > Integer.MAX_VALUE) throw new IOException("File too large to map at once: " + file);
+            return scan(fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size()));
+        }
+    }
+
+    /** Lexes a file of any size through mapped slices; token positions are absolute file offsets. */
+    public static void lex(FileChannel fc, TokenSink out) throws IOException {
+        lex(fc, MAP_CHUNK, out);
+    }
+
+    static void lex(FileChannel fc, int chunk, TokenSink out) throws IOException {
+        SymbolTable.Lexer lx = new SymbolTable.Lexer();
+        long total = fc.size(), base = 0;
+        int from = 0;
+        while (true) {
+            int size = (int) Math.min(chunk, total - base);
+            Source src = new Source(fc.map(FileChannel.MapMode.READ_ONLY, base, size));
+            boolean eof = base + size == total;
+            int stop = lx.run(src, from, size, base, eof, out);
+            if (eof) return;
+
+            // the next slice starts at the pending token, so its bytes stay addressable
+            long keep = lx.tokStart >= 0 ? lx.tokStart : base + stop;
+            from = (int) (base + stop - keep);
+            if (keep == base) {
+                if (chunk > Integer.MAX_VALUE / 2) throw new IOException("Token longer than " + chunk + " bytes at " + base);
+                chunk *= 2;
+            }
+            base = keep;
+        }
+    }
+
+    /** Decodes a lexeme emitted by this lexer or any other. */
+    public static String text(CharSequence src, int off, int len) {
+        return src instanceof Source ? ((Source) src).decode(off, len) : src.subSequence(off, off + len).toString();
+    }
+
+    /** The bytes of a buffer seen as Latin-1 chars, indexed by absolute buffer position. */
+    static final class Source implements CharSequence {
+        final ByteBuffer buf; // little-endian, for word-at-a-time scans
+
+        Source(ByteBuffer buf) {
+            this.buf = buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        @Override
+        public int length() {
+            return buf.limit();
+        }
+
+        @Override
+        public char charAt(int i) {
+            return (char) (buf.get(i) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            byte[] b = new byte[to - from];
+            buf.get(from, b);
+            return new String(b, StandardCharsets.ISO_8859_1);
+        }
+
+        String decode(int off, int len) {
+            if (buf.hasArray()) return new String(buf.array(), buf.arrayOffset() + off, len, StandardCharsets.UTF_8);
+            byte[] b = new byte[len];
+            buf.get(off, b);
+            return new String(b, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0) {
+            try (FileChannel fc = FileChannel.open(Paths.get(args[0]), StandardOpenOption.READ)) {
+                lex(fc, TokenWriter.text(TokenWriter.stdout()));
+            }
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 32 * 1024 * 1024) {
+            sb.append("lafz salam = \"السلام علیکم\"; ~~ greeting\nadad x = 5; -% hisaab %- likho(x);\n");
+        }
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+
+        for (int round = 0; round < 3; round++) {
+            long t0 = System.nanoTime();
+            int a = SymbolTable.scan(new String(bytes, StandardCharsets.UTF_8)).size();
+            long t1 = System.nanoTime();
+            int b = scan(direct).size();
+            long t2 = System.nanoTime();
+            System.out.println("decode + lex: " + a + " tokens in " + (t1 - t0) / 1_000_000 + " ms, bytes: " + b
+                    + " tokens in " + (t2 - t1) / 1_000_000 + " ms");
+        }
+        TokenBuffer toks = scan(direct);
+        System.out.println("first string literal: " + toks.text(3));
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.demo;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** Regex to NFA, subset construction and the direct minimal-table compile, per regex. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AutomataBench {
+    @Param({
+            "(lo|do|likho|jhanda|adad|asharia|harf|lafz)*",
+            "[a-z][a-z0-9]*",
+            "(a|b)*abb",
+            "(a|b)*a(a|b)(a|b)(a|b)(a|b)(a|b)(a|b)"
+    })
+    public String regex;
+
+    private RegexToNFA.NFA nfa;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        nfa = RegexToNFA.convertToNFA(regex);
+    }
+
+    @Benchmark
+    public RegexToNFA.NFA convertToNFA() {
+        return RegexToNFA.convertToNFA(regex);
+    }
+
+    @Benchmark
+    public RegexToNFA.DFA convertToDFA() {
+        return RegexToNFA.convertToDFA(nfa);
+    }
+
+    @Benchmark
+    public RegexToNFA.Table compile() {
+        return RegexToNFA.compile(nfa);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Compares two JMH {@code -rf json} result files by benchmark and parameters:
+ * {@code java -cp target/benchmarks.jar com.example.demo.BaselineDiff baseline.json current.json}.
+ * A change is marked when the scores differ by more than their combined error.
+ */
+public final class BaselineDiff {
+    private BaselineDiff() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: BaselineDiff <baseline.json> <current.json>");
+            System.exit(2);
+        }
+        Map<String, double[]> base = scores(Paths.get(args[0])), cur = scores(Paths.get(args[1]));
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, double[]> e : cur.entrySet()) {
+            double[] b = base.get(e.getKey()), c = e.getValue();
+            if (b == null) {
+                sb.append(String.format("  new   %s: %.3f%n", e.getKey(), c[0]));
+                continue;
+            }
+            double change = (c[0] - b[0]) / b[0] * 100;
+            String mark = Math.abs(c[0] - b[0]) > b[1] + c[1] ? (change > 0 ? "  up  " : " down ") : "      ";
+            sb.append(String.format("%s %s: %.3f -> %.3f (%+.1f%%)%n", mark, e.getKey(), b[0], c[0], change));
+        }
+        for (String k : base.keySet()) {
+            if (!cur.containsKey(k)) sb.append("  gone  ").append(k).append('\n');
+        }
+        System.out.print(sb);
+    }
+
+    /** Score and error of every primary and secondary metric, keyed by "benchmark{params} metric unit". */
+    @SuppressWarnings("unchecked")
+    static Map<String, double[]> scores(Path file) throws IOException {
+        List<Object> runs = (List<Object>) new Json(Files.readString(file)).value();
+        Map<String, double[]> out = new TreeMap<>();
+        for (Object o : runs) {
+            Map<String, Object> run = (Map<String, Object>) o;
+            String key = run.get("benchmark") + String.valueOf(run.getOrDefault("params", ""));
+            put(out, key + " primary", (Map<String, Object>) run.get("primaryMetric"));
+            Map<String, Object> secondary = (Map<String, Object>) run.getOrDefault("secondaryMetrics", Map.of());
+            for (Map.Entry<String, Object> m : secondary.entrySet()) put(out, key + " " + m.getKey(), (Map<String, Object>) m.getValue());
+        }
+        return out;
+    }
+
+    private static void put(Map<String, double[]> out, String key, Map<String, Object> metric) {
+        double score = ((Number) metric.get("score")).doubleValue();
+        Object err = metric.get("scoreError");
+        double error = err instanceof Number && !Double.isNaN(((Number) err).doubleValue()) ? ((Number) err).doubleValue() : 0;
+        out.put(key + " " + metric.get("scoreUnit"), new double[]{score, error});
+    }
+
+    /** Just enough JSON for JMH result files; {@code "NaN"} and friends stay strings. */
+    static final class Json {
+        private final String s;
+        private int i;
+
+        Json(String s) {
+            this.s = s;
+        }
+
+        Object value() {
+            ws();
+            char c = s.charAt(i);
+            if (c == '{') {
+                Map<String, Object> m = new LinkedHashMap<>();
+                i++;
+                for (ws(); s.charAt(i) != '}'; ws()) {
+                    String k = string();
+                    ws();
+                    i++; // ':'
+                    m.put(k, value());
+                    ws();
+                    if (s.charAt(i) == ',') i++;
+                }
+                i++;
+                return m;
+            }
+            if (c == '[') {
+                List<Object> l = new ArrayList<>();
+                i++;
+                for (ws(); s.charAt(i) != ']'; ws()) {
+                    l.add(value());
+                    ws();
+                    if (s.charAt(i) == ',') i++;
+                }
+                i++;
+                return l;
+            }
+            if (c == '"') return string();
+            int from = i;
+            while (i < s.length() && ",}] \n\r\t".indexOf(s.charAt(i)) < 0) i++;
+            String word = s.substring(from, i);
+            return switch (word) {
+                case "true" -> Boolean.TRUE;
+                case "false" -> Boolean.FALSE;
+                case "null" -> null;
+                default -> Double.parseDouble(word);
+            };
+        }
+
+        private String string() {
+            StringBuilder sb = new StringBuilder();
+            for (i++; s.charAt(i) != '"'; i++) {
+                char c = s.charAt(i);
+                if (c == '\\') {
+                    c = s.charAt(++i);
+                    if (c == 'u') {
+                        c = (char) Integer.parseInt(s.substring(i + 1, i + 5), 16);
+                        i += 4;
+                    } else if (c == 'n') {
+                        c = '\n';
+                    } else if (c == 't') {
+                        c = '\t';
+                    }
+                }
+                sb.append(c);
+            }
+            i++;
+            return sb.toString();
+        }
+
+        private void ws() {
+            while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.demo;
+
+import java.util.*;
+
+/**
+ * Deterministic synthetic Roman Urdu sources for the benchmarks. Every shape is pure ASCII, so a
+ * corpus of {@code size} chars is also {@code size} bytes of UTF-8.
+ */
+public final class Corpus {
+    public enum Shape {
+        /** Declarations, conditionals, loops and prints with the odd comment, like ordinary code. */
+        MIXED,
+        /** Mostly line and block comments around a few statements. */
+        COMMENTS,
+        /** Long string literals. */
+        STRINGS,
+        /** Blocks nested a few hundred deep. */
+        NESTED
+    }
+
+    private static final String[] TYPES = {"adad", "asharia", "lafz", "jhanda", "harf"};
+    private static final String[] WORDS = {"salam", "duniya", "hisaab", "kitab", "pani", "shehar", "waqt", "rasta"};
+
+    private Corpus() {
+    }
+
+    public static String generate(Shape shape, int size, long seed) {
+        Random rnd = new Random(seed);
+        StringBuilder sb = new StringBuilder(size + 256);
+        while (sb.length() < size) {
+            switch (shape) {
+                case MIXED -> mixed(sb, rnd);
+                case COMMENTS -> comments(sb, rnd);
+                case STRINGS -> strings(sb, rnd);
+                case NESTED -> nested(sb, rnd, 300);
+            }
+        }
+        sb.setLength(size);
+        return sb.toString();
+    }
+
+    private static String name(Random rnd) {
+        return WORDS[rnd.nextInt(WORDS.length)] + rnd.nextInt(100);
+    }
+
+    private static void mixed(StringBuilder sb, Random rnd) {
+        switch (rnd.nextInt(6)) {
+            case 0 -> sb.append(TYPES[rnd.nextInt(TYPES.length)]).append(' ').append(name(rnd)).append(" = ")
+                    .append(rnd.nextInt(1000)).append(";\n");
+            case 1 -> sb.append("asharia ").append(name(rnd)).append(" = ").append(rnd.nextInt(100)).append('.')
+                    .append(rnd.nextInt(100)).append(";\n");
+            case 2 -> sb.append("agar (").append(name(rnd)).append(" > ").append(rnd.nextInt(50)).append(") {\n    likho(\"")
+                    .append(WORDS[rnd.nextInt(WORDS.length)]).append("\");\n} warna {\n    ").append(name(rnd))
+                    .append(" = ").append(name(rnd)).append(" + 1;\n}\n");
+            case 3 -> sb.append("jabtak (").append(name(rnd)).append(" < 10) {\n    ").append(name(rnd)).append(" = ")
+                    .append(name(rnd)).append(" * 2;\n}\n");
+            case 4 -> sb.append("lo(").append(name(rnd)).append("); do(").append(name(rnd)).append(");\n");
+            default -> sb.append("~~ ").append(WORDS[rnd.nextInt(WORDS.length)]).append(" ka hisaab\n");
+        }
+    }
+
+    private static void comments(StringBuilder sb, Random rnd) {
+        if (rnd.nextBoolean()) {
+            sb.append("-% ");
+            for (int i = rnd.nextInt(40) + 10; i > 0; i--) {
+                sb.append(WORDS[rnd.nextInt(WORDS.length)]).append(i % 8 == 0 ? '\n' : ' ');
+            }
+            sb.append("%-\n");
+        } else {
+            sb.append("~~");
+            for (int i = rnd.nextInt(12) + 4; i > 0; i--) sb.append(' ').append(WORDS[rnd.nextInt(WORDS.length)]);
+            sb.append('\n');
+        }
+        if (rnd.nextInt(4) == 0) sb.append("adad ").append(name(rnd)).append(" = 1;\n");
+    }
+
+    private static void strings(StringBuilder sb, Random rnd) {
+        sb.append("lafz ").append(name(rnd)).append(" = \"");
+        for (int i = rnd.nextInt(60) + 20; i > 0; i--) sb.append(WORDS[rnd.nextInt(WORDS.length)]).append(' ');
+        sb.append("\";\nlikho(").append(name(rnd)).append(");\n");
+    }
+
+    private static void nested(StringBuilder sb, Random rnd, int depth) {
+        for (int d = 0; d < depth; d++) sb.append("agar (").append(name(rnd)).append(" > ").append(d).append(") {\n");
+        sb.append("likho(").append(name(rnd)).append(");\n");
+        for (int d = 0; d < depth; d++) sb.append("}\n");
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.demo;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Lexing and diagnostics throughput. Besides ops/s, each benchmark reports {@code bytes} and
+ * {@code tokens} per second through {@link Rates}; MB/s is {@code bytes / 2^20}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class LexerBench {
+    @Param({"1024", "1048576", "104857600"})
+    public int size;
+
+    @Param({"MIXED", "COMMENTS", "STRINGS", "NESTED"})
+    public Corpus.Shape shape;
+
+    private String code;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Rates {
+        public long bytes;
+        public long tokens;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+            tokens = 0;
+        }
+    }
+
+    /** Counts tokens so the lexer's output is consumed without being stored. */
+    static final class Count implements TokenSink {
+        int n;
+
+        @Override
+        public void token(byte kind, CharSequence src, int off, int len, long pos, int line) {
+            n++;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        code = Corpus.generate(shape, size, 42);
+    }
+
+    @Benchmark
+    public List<String> tokenizerTokenize(Rates r) {
+        List<String> toks = Tokenizer.tokenize(code);
+        r.bytes += code.length();
+        r.tokens += toks.size();
+        return toks;
+    }
+
+    @Benchmark
+    public int symbolTableTokenize(Rates r) {
+        Count c = new Count();
+        SymbolTable.tokenize(code, c);
+        r.bytes += code.length();
+        r.tokens += c.n;
+        return c.n;
+    }
+
+    @Benchmark
+    public ErrorHandler errorHandlerAnalyze(Rates r) {
+        ErrorHandler eh = new ErrorHandler();
+        TokenBuffer toks = eh.analyze(code);
+        r.bytes += code.length();
+        r.tokens += toks.size();
+        return eh;
+    }
+}